@@ -0,0 +1,47 @@
+// Position corpus shared by the benchmarks, grouped by game phase. Every benchmark operation
+// runs over all positions of one phase, selected with the "phase" parameter.
+final class BenchmarkPositions {
+
+    static final String OPENING = "opening";
+    static final String MIDDLEGAME = "middlegame";
+    static final String ENDGAME = "endgame";
+
+    private static final String[] OPENING_FENS = {
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+        "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w - - 0 2",
+        "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w - - 4 4",
+        "rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w - - 1 5",
+    };
+
+    private static final String[] MIDDLEGAME_FENS = {
+        "r2q1rk1/pp2bppp/2n1pn2/3p4/3P4/2NBPN2/PP3PPP/R2Q1RK1 b - - 0 10",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+        "2r3k1/1q1nbppp/r3p3/3pP3/pPpP4/P1Q2N2/2RN1PPP/2R4K b - - 0 22",
+        "r1b2rk1/2q1bppp/p2p1n2/np2p3/3PP3/5N1P/PPBN1PP1/R1BQR1K1 b - - 0 13",
+    };
+
+    private static final String[] ENDGAME_FENS = {
+        "8/5pk1/6p1/8/3K4/8/5PP1/8 w - - 0 40",
+        "8/8/4k3/3p4/3P4/4K3/8/8 w - - 0 50",
+        "6k1/5ppp/8/8/8/8/1R3PPP/6K1 w - - 0 30",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+
+    private BenchmarkPositions() {
+    }
+
+    static Board[] load(String phase) {
+        String[] fens;
+        switch (phase) {
+            case OPENING: fens = OPENING_FENS; break;
+            case MIDDLEGAME: fens = MIDDLEGAME_FENS; break;
+            case ENDGAME: fens = ENDGAME_FENS; break;
+            default: throw new IllegalArgumentException("Unknown phase: " + phase);
+        }
+        Board[] boards = new Board[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            boards[i] = Board.fromFen(fens[i]);
+        }
+        return boards;
+    }
+}
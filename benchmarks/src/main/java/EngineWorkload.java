@@ -0,0 +1,109 @@
+import java.util.List;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import bench.Workload;
+
+// The engine calls measured by the benchmarks in package bench, each over every position of
+// one phase of the corpus
+public class EngineWorkload implements Workload {
+
+    private String phase;
+    private Board[] boards;
+    private List<Move>[] legalMoves;
+    private int[][] packedMoves;
+    private String[][][] coins;
+    private ChessBot bot;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void load(String phase) {
+        this.phase = phase;
+        boards = BenchmarkPositions.load(phase);
+        legalMoves = new List[boards.length];
+        packedMoves = new int[boards.length][];
+        coins = new String[boards.length][][];
+        for (int i = 0; i < boards.length; i++) {
+            legalMoves[i] = boards[i].getAllLegalMoves();
+            packedMoves[i] = new int[legalMoves[i].size()];
+            for (int j = 0; j < packedMoves[i].length; j++) {
+                packedMoves[i][j] = boards[i].encode(legalMoves[i].get(j));
+            }
+            coins[i] = boards[i].toCoins();
+        }
+    }
+
+    @Override
+    public void getAllLegalMoves(Blackhole bh) {
+        for (Board board : boards) {
+            bh.consume(board.getAllLegalMoves());
+        }
+    }
+
+    // Copying makeMove for every move of every position
+    @Override
+    public void makeMove(Blackhole bh) {
+        for (int i = 0; i < boards.length; i++) {
+            for (Move move : legalMoves[i]) {
+                bh.consume(boards[i].makeMove(move));
+            }
+        }
+    }
+
+    // The in-place make/unmake pair the search uses, for comparison with makeMove
+    @Override
+    public long makeUnmake() {
+        long keys = 0;
+        for (int i = 0; i < boards.length; i++) {
+            Board board = boards[i];
+            for (int move : packedMoves[i]) {
+                board.make(move);
+                keys ^= board.zobristKey;
+                board.unmake(move);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public int evaluate() {
+        int sum = 0;
+        for (Board board : boards) {
+            sum += board.evaluate();
+        }
+        return sum;
+    }
+
+    // Chess.isKingInCheck as the UI calls it, on the glyph matrix, for both kings. The static
+    // form is used so no Swing window is needed.
+    @Override
+    public int isKingInCheck() {
+        int checks = 0;
+        for (int i = 0; i < coins.length; i++) {
+            if (Chess.isKingInCheck(coins[i], boards[i].isWhiteTurn, true)) checks++;
+            if (Chess.isKingInCheck(coins[i], boards[i].isWhiteTurn, false)) checks++;
+        }
+        return checks;
+    }
+
+    @Override
+    public void resetSearch() {
+        if (bot == null) bot = new ChessBot(null);
+        boards = BenchmarkPositions.load(phase);
+        bot.getTranspositionTable().clear();
+    }
+
+    @Override
+    public int minimax(int depth) {
+        int sum = 0;
+        for (Board board : boards) {
+            sum += bot.minimax(board, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, board.isWhiteTurn);
+        }
+        return sum;
+    }
+
+    @Override
+    public void shutdown() {
+        if (bot != null) bot.shutdown();
+    }
+}
@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Board.getAllLegalMoves, Board.makeMove (plus the in-place make/unmake) and Board.evaluate
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({ "opening", "middlegame", "endgame" })
+    public String phase;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create();
+        workload.load(phase);
+    }
+
+    @Benchmark
+    public void getAllLegalMoves(Blackhole bh) {
+        workload.getAllLegalMoves(bh);
+    }
+
+    @Benchmark
+    public void makeMove(Blackhole bh) {
+        workload.makeMove(bh);
+    }
+
+    @Benchmark
+    public long makeUnmake() {
+        return workload.makeUnmake();
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return workload.evaluate();
+    }
+}
@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ChessBot.minimax at a fixed depth with a full window. The transposition table is cleared
+// before every operation so each one searches from scratch.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinimaxBenchmark {
+
+    @Param({ "opening", "middlegame", "endgame" })
+    public String phase;
+
+    @Param({ "3", "5" })
+    public int depth;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workload.create();
+        workload.load(phase);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetSearch() {
+        workload.resetSearch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.shutdown();
+    }
+
+    @Benchmark
+    public int minimax() {
+        return workload.minimax(depth);
+    }
+}
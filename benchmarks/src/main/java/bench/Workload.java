@@ -0,0 +1,38 @@
+package bench;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+// The engine lives in the default package, which code in a named package cannot refer to, and
+// JMH only accepts benchmarks in a named package. The benchmarks therefore call the engine
+// through this interface, implemented by the default-package EngineWorkload. Each benchmark
+// makes one instance, so every call site sees a single implementation and is inlined.
+public interface Workload {
+
+    // Loads the corpus positions of one phase, see EngineWorkload
+    void load(String phase);
+
+    void getAllLegalMoves(Blackhole bh);
+
+    void makeMove(Blackhole bh);
+
+    long makeUnmake();
+
+    int evaluate();
+
+    int isKingInCheck();
+
+    // Fresh positions and an empty transposition table for the next search
+    void resetSearch();
+
+    int minimax(int depth);
+
+    void shutdown();
+
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("EngineWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("EngineWorkload missing from the benchmark jar", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ChessBotTest {
+
+    private static final String[] POSITIONS = {
+            Perft.START,
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+
+    // Budgets short enough that most searches stop inside an iteration: the line reported must be
+    // the one of the last finished iteration, so it starts with the move returned
+    @Test
+    void principalVariationStartsWithTheBestMove() {
+        for (int splitThreads : new int[] { 1, 3 }) {
+            ChessBot bot = new ChessBot();
+            bot.setRootSplitThreads(splitThreads);
+            try {
+                for (String fen : POSITIONS) {
+                    for (long millis = 1; millis <= 64; millis *= 2) {
+                        Move best = bot.getBestMoveTimed(Board.fromFen(fen), millis, ChessBot.MAX_DEPTH, Long.MAX_VALUE);
+                        assertNotNull(best, fen);
+                        List<Move> pv = bot.getPrincipalVariation();
+                        assertFalse(pv.isEmpty(), fen);
+                        assertEquals(best, pv.get(0), fen + " in " + millis + " ms, pv " + pv);
+                    }
+                }
+            } finally {
+                bot.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OpeningBookTest {
+
+    // Keys from the Polyglot book format specification, for the positions these rules can reach
+    // or set up without an en passant file in the hash
+    @Test
+    void polyglotKeysMatchTheSpecification() {
+        assertKey(0x463b96181691fc9cL, "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w");
+        assertKey(0x823c9b50fd114196L, "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b");
+        assertKey(0x0756b94461c50fb0L, "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w");
+        assertKey(0x662fafb965db29d4L, "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b");
+        assertKey(0x652a607ca3f242c1L, "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b");
+        assertKey(0x00fdd303c946bdd9L, "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w");
+        assertKey(0x5c3f9b829b279560L, "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b");
+    }
+
+    @Test
+    void playedMovesKeepTheKey() {
+        Board board = Board.fromFen(Perft.START);
+        for (String move : "e2e4 d7d5 e4e5".split(" ")) {
+            board.play(Uci.parseMove(board, move));
+        }
+        assertKey(0x662fafb965db29d4L, board.toFen());
+    }
+
+    @Test
+    void bookBuilderOutputIsProbed(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("book.bin");
+        BookBuilder.write(file, BookBuilder.build(List.of("e2e4 e7e5 g1f3")));
+        OpeningBook book = new OpeningBook(file);
+        assertEquals(3, book.size());
+
+        Board board = Board.fromFen(Perft.START);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        assertEquals("e2e4", Move.of(book.probe(board, new SplittableRandom(1), moves)).toString());
+        board.play(Uci.parseMove(board, "e2e4"));
+        board.play(Uci.parseMove(board, "e7e5"));
+        assertEquals("g1f3", Move.of(book.probe(board, new SplittableRandom(1), moves)).toString());
+        board.play(Uci.parseMove(board, "g1f3"));
+        assertEquals(Move.NONE, book.probe(board, new SplittableRandom(1), moves));
+    }
+
+    private static void assertKey(long expected, String fen) {
+        assertEquals(Long.toHexString(expected), Long.toHexString(OpeningBook.polyglotKey(Board.fromFen(fen))), fen);
+    }
+}
@@ -0,0 +1,85 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UciTest {
+
+    private ByteArrayOutputStream captured;
+    private Uci uci;
+
+    @BeforeEach
+    void start() {
+        captured = new ByteArrayOutputStream();
+        uci = new Uci(new PrintStream(captured, true));
+    }
+
+    @AfterEach
+    void quit() throws IOException {
+        uci.run(new BufferedReader(new StringReader("quit"))); // stops the search and the helpers
+    }
+
+    // A GUI sends the whole game with every position command, so a long game must replay on one
+    // board and still leave the engine able to search
+    @Test
+    void longGameReplaysPastTheUndoStack() throws InterruptedException {
+        StringBuilder line = new StringBuilder("position startpos moves");
+        String[] shuffle = { "b1c3", "b8c6", "c3b1", "c6b8" };
+        int plies = 2 * Board.MAX_PLY + 4;
+        for (int i = 0; i < plies; i++) {
+            line.append(' ').append(shuffle[i % 4]);
+        }
+        uci.command(line.toString());
+        uci.command("go depth 2");
+        awaitBestMove();
+        assertFalse(output().contains("illegal move"), output());
+    }
+
+    @Test
+    void unknownGoParametersAreSkipped() throws InterruptedException {
+        uci.command("position startpos");
+        uci.command("go searchmoves e2e4 d2d4 depth 2");
+        awaitBestMove();
+        assertTrue(output().contains("unsupported go parameter searchmoves"), output());
+    }
+
+    @Test
+    void infiniteSearchHoldsBestMoveUntilStop() throws InterruptedException {
+        uci.command("position startpos");
+        uci.command("go infinite depth 1"); // over at once, but bestmove must wait
+        Thread.sleep(300);
+        assertFalse(output().contains("bestmove"), output());
+        uci.command("stop");
+        assertTrue(output().contains("bestmove "), output());
+    }
+
+    @Test
+    void ponderhitReleasesBestMove() throws InterruptedException {
+        uci.command("position startpos");
+        uci.command("go ponder depth 1");
+        Thread.sleep(300);
+        assertFalse(output().contains("bestmove"), output());
+        uci.command("ponderhit");
+        awaitBestMove();
+    }
+
+    private void awaitBestMove() throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!output().contains("bestmove ")) {
+            assertTrue(System.nanoTime() < deadline, "no bestmove: " + output());
+            Thread.sleep(10);
+        }
+    }
+
+    private String output() {
+        return captured.toString(); // ByteArrayOutputStream is synchronized
+    }
+}
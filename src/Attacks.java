@@ -0,0 +1,203 @@
+// Precomputed attack sets. Squares use the Board layout: sq = row * 8 + col, row 0 is black's
+// back rank. Knight, king and pawn attacks are plain tables; bishop and rook attacks are looked
+// up through magic bitboards, so every piece's full attack set costs one or two array reads.
+public final class Attacks {
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64]; // [colour][square]
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    // Magic multipliers, found once with a fixed-seed random search over sparse candidates.
+    // Searching at startup costs over a second, so they are kept as constants and only verified.
+    private static final long[] ROOK_MAGIC = {
+        0x0080008420144000L, 0x0140001000402000L, 0x8100200100081040L, 0x0580100181040800L,
+        0x0480040002480180L, 0x020002001004C108L, 0x06002600180104ACL, 0x0A00010200804024L,
+        0x1102800320814002L, 0xC000808040002000L, 0x0202802000821000L, 0x4210800800801000L,
+        0x8008808044004800L, 0x0006002418100200L, 0x0A00800200010080L, 0x0202000208804114L,
+        0x0280044002200041L, 0x3010004020004008L, 0x0010002008040022L, 0x8000210008100102L,
+        0x60A2020004110820L, 0x0222008080040002L, 0x00C0840002085110L, 0x02004A0000810454L,
+        0x0080401080008020L, 0x0040200040100048L, 0x0006041200208040L, 0x2010100100210008L,
+        0x5090080080800400L, 0x0022002200042950L, 0x011010040002E108L, 0x0000240200009041L,
+        0x0010400020800080L, 0x0040401000402000L, 0x0200200080801000L, 0x4140080080801003L,
+        0x0000800400800800L, 0x0800040080800200L, 0x1008080284002110L, 0x00A001008A001444L,
+        0x3040002040908000L, 0x1000422010024000L, 0x0040402001010010L, 0x8000100008008080L,
+        0x0084008008028004L, 0x0002000204008080L, 0x0000088210040001L, 0x0280C12080520004L,
+        0x028700800C402B00L, 0x0180200040008080L, 0x80A0008020100080L, 0x0001012010008900L,
+        0x4000040108008180L, 0x000C000402008080L, 0x004B0002002C0900L, 0x0020D42040811200L,
+        0x8844520121004082L, 0x1109150082204001L, 0x0302000820408012L, 0x2081002208041001L,
+        0x0002000804201002L, 0x5101000A28040029L, 0x0100080112489004L, 0x02000E4400288102L
+    };
+
+    private static final long[] BISHOP_MAGIC = {
+        0x4014281015002108L, 0x0060020882029000L, 0x1104440082102120L, 0x4004410020042802L,
+        0x0011104020140040L, 0x0006074460005020L, 0x48208E0820040201L, 0x0202050401042240L,
+        0x400C401014208AA0L, 0x01C020064A424100L, 0x0012304408424000L, 0x21008808510C0004L,
+        0x0020141420000024L, 0x0004009004202009L, 0x4002008410080450L, 0x2000088280B82000L,
+        0x4040002410828602L, 0x08448030810A1410L, 0x1010032104008110L, 0x0850810802084244L,
+        0x0804000202112040L, 0x4901008610009420L, 0x31A0402411082800L, 0x8402000107620200L,
+        0x2210311041126208L, 0x0295218018020400L, 0x2092010408104400L, 0x0004040000401080L,
+        0x0020404004010041L, 0x80448A0109080618L, 0x008084110A0A0200L, 0x204C00C000A70440L,
+        0x3010106441114400L, 0x0C94115400181000L, 0x1821403000020400L, 0x2000020082480080L,
+        0x2080408020020200L, 0x0020080040068040L, 0x20089D8888190802L, 0x000F820044408408L,
+        0x2084022006089000L, 0x22510101A0401020L, 0x40000A0802009408L, 0x140483C010420200L,
+        0x0449200208811408L, 0x0002220042000100L, 0x00281000D0800201L, 0x044200A519010200L,
+        0x0300421050080002L, 0x00C0540401080004L, 0x4801010088040034L, 0x8400000210540051L,
+        0x400400404822002CL, 0x2080070448020000L, 0x1B2082100A00A000L, 0x4002021802108000L,
+        0xC000248800901000L, 0x0000024100B01100L, 0x1902103044022100L, 0x0000004404228810L,
+        0x0101000008210100L, 0x0025000820089082L, 0x0008091010008120L, 0x9120024202040010L
+    };
+
+    // Squares strictly between two aligned squares, 0 when they are not on a common line
+    private static final long[][] BETWEEN = new long[64][64];
+
+    private static final int[][] ROOK_DIRECTIONS = { {1, 0}, {-1, 0}, {0, 1}, {0, -1} };
+    private static final int[][] BISHOP_DIRECTIONS = { {1, 1}, {1, -1}, {-1, 1}, {-1, -1} };
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT[sq] = stepAttacks(sq, new int[][] {
+                {2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}
+            });
+            KING[sq] = stepAttacks(sq, new int[][] {
+                {1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+            });
+            // white pawns move towards row 0, black pawns towards row 7
+            PAWN[Piece.WHITE][sq] = stepAttacks(sq, new int[][] { {-1, -1}, {-1, 1} });
+            PAWN[Piece.BLACK][sq] = stepAttacks(sq, new int[][] { {1, -1}, {1, 1} });
+        }
+
+        for (int sq = 0; sq < 64; sq++) {
+            ROOK_MASK[sq] = relevantMask(sq, ROOK_DIRECTIONS);
+            ROOK_SHIFT[sq] = 64 - Long.bitCount(ROOK_MASK[sq]);
+            ROOK_TABLE[sq] = fillTable(sq, ROOK_MASK[sq], ROOK_MAGIC[sq], ROOK_SHIFT[sq], ROOK_DIRECTIONS);
+
+            BISHOP_MASK[sq] = relevantMask(sq, BISHOP_DIRECTIONS);
+            BISHOP_SHIFT[sq] = 64 - Long.bitCount(BISHOP_MASK[sq]);
+            BISHOP_TABLE[sq] = fillTable(sq, BISHOP_MASK[sq], BISHOP_MAGIC[sq], BISHOP_SHIFT[sq], BISHOP_DIRECTIONS);
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long bit = 1L << b;
+                if ((slidingAttacks(a, 0L, ROOK_DIRECTIONS) & bit) != 0) {
+                    BETWEEN[a][b] = slidingAttacks(a, bit, ROOK_DIRECTIONS) & slidingAttacks(b, 1L << a, ROOK_DIRECTIONS);
+                } else if ((slidingAttacks(a, 0L, BISHOP_DIRECTIONS) & bit) != 0) {
+                    BETWEEN[a][b] = slidingAttacks(a, bit, BISHOP_DIRECTIONS) & slidingAttacks(b, 1L << a, BISHOP_DIRECTIONS);
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knightAttacks(int sq) {
+        return KNIGHT[sq];
+    }
+
+    public static long kingAttacks(int sq) {
+        return KING[sq];
+    }
+
+    public static long pawnAttacks(int color, int sq) {
+        return PAWN[color][sq];
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return ROOK_TABLE[sq][(int) (((occupied & ROOK_MASK[sq]) * ROOK_MAGIC[sq]) >>> ROOK_SHIFT[sq])];
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        return BISHOP_TABLE[sq][(int) (((occupied & BISHOP_MASK[sq]) * BISHOP_MAGIC[sq]) >>> BISHOP_SHIFT[sq])];
+    }
+
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    // Attack set of any non-pawn piece type
+    public static long attacks(int type, int sq, long occupied) {
+        switch (type) {
+            case Piece.KNIGHT: return KNIGHT[sq];
+            case Piece.BISHOP: return bishopAttacks(sq, occupied);
+            case Piece.ROOK: return rookAttacks(sq, occupied);
+            case Piece.QUEEN: return queenAttacks(sq, occupied);
+            case Piece.KING: return KING[sq];
+            default: return 0L;
+        }
+    }
+
+    // ////////////////////////////// table construction
+
+    private static long stepAttacks(int sq, int[][] steps) {
+        long attacks = 0L;
+        int row = sq >> 3, col = sq & 7;
+        for (int[] step : steps) {
+            int r = row + step[0], c = col + step[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) attacks |= 1L << (r * 8 + c);
+        }
+        return attacks;
+    }
+
+    // Ray walk used only while building the tables
+    private static long slidingAttacks(int sq, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] d : directions) {
+            int r = (sq >> 3) + d[0], c = (sq & 7) + d[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long bit = 1L << (r * 8 + c);
+                attacks |= bit;
+                if ((occupied & bit) != 0) break;
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    // Squares whose occupancy matters for a slider: its rays without the last square on each edge
+    private static long relevantMask(int sq, int[][] directions) {
+        long mask = 0L;
+        for (int[] d : directions) {
+            int r = (sq >> 3) + d[0], c = (sq & 7) + d[1];
+            while (r + d[0] >= 0 && r + d[0] < 8 && c + d[1] >= 0 && c + d[1] < 8) {
+                mask |= 1L << (r * 8 + c);
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] fillTable(int sq, long mask, long magic, int shift, int[][] directions) {
+        long[] table = new long[1 << (64 - shift)];
+        boolean[] used = new boolean[table.length];
+
+        // enumerate every subset of the mask (carry-rippler)
+        long subset = 0L;
+        do {
+            int index = (int) ((subset * magic) >>> shift);
+            long attacks = slidingAttacks(sq, subset, directions);
+            if (used[index] && table[index] != attacks) {
+                throw new IllegalStateException("Bad magic for square " + sq);
+            }
+            used[index] = true;
+            table[index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+
+        return table;
+    }
+}
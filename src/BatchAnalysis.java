@@ -0,0 +1,242 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Offline analysis of a FEN or EPD file, one position per line, with one single-threaded search
+// per core. The input is read as it is consumed: at most -window positions are queued, searching
+// or waiting for an earlier one to finish, and results leave a reorder buffer of that size in
+// input order. Each output line is the position's first four FEN fields with EPD opcodes
+//
+//   <placement> <side> - - bm Nf3; ce 35; acd 9; acn 120345;
+//
+// (best move in SAN, score in centipawns for the side to move, depth, nodes). Lines that are not
+// a position, or have no move, are reported on standard error and left out.
+//
+// Every -checkpoint positions, and when the run is interrupted, <out>.ckpt records how many input
+// lines are done and how long the output was then. A rerun with the same arguments cuts the output
+// back to that length, skips those lines and carries on; the checkpoint is removed at the end.
+//
+//   java BatchAnalysis <in.epd> <out.epd> [-movetime MS | -depth N | -nodes N] [-threads N]
+//                      [-hash MB] [-window N] [-checkpoint N]
+public class BatchAnalysis {
+
+    static final String CHECKPOINT_SUFFIX = ".ckpt";
+    static final long PROGRESS_NANOS = 10_000_000_000L;
+
+    private long movetime = 100;
+    private int depth = ChessBot.MAX_DEPTH;
+    private long nodes = Long.MAX_VALUE;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int hashMb = ChessBot.DEFAULT_HASH_MB;
+    private int window = -1; // positions in flight, default 64 per thread
+    private int checkpointEvery = 1000;
+
+    private Path input, output, checkpoint;
+    private Tablebase tablebase;
+    private final ThreadLocal<ChessBot> bots = new ThreadLocal<>();
+    private final Queue<ChessBot> allBots = new ConcurrentLinkedQueue<>();
+
+    // reorder buffer, guarded by this: slot seq % window holds the output of input line seq
+    // (null while searching, "" for a skipped line) until every earlier line has been written
+    private String[] pending;
+    private Semaphore free; // one permit per empty slot
+    private OutputStream out;
+    private long nextLine;    // first input line not yet written
+    private long outputBytes; // length of the output up to nextLine
+    private long sinceCheckpoint, analysed, startLine;
+    private long startNanos, lastProgress;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: java BatchAnalysis <in.epd> <out.epd> [-movetime MS | -depth N | -nodes N] "
+                    + "[-threads N] [-hash MB] [-window N] [-checkpoint N]");
+            System.exit(2);
+        }
+        BatchAnalysis analysis = new BatchAnalysis();
+        analysis.parse(args);
+        analysis.run();
+    }
+
+    private void parse(String[] args) {
+        input = Paths.get(args[0]);
+        output = Paths.get(args[1]);
+        checkpoint = Paths.get(args[1] + CHECKPOINT_SUFFIX);
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-movetime": movetime = Long.parseLong(value); break;
+                case "-depth": depth = Integer.parseInt(value); movetime = Long.MAX_VALUE; break;
+                case "-nodes": nodes = Long.parseLong(value); movetime = Long.MAX_VALUE; break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                case "-hash": hashMb = Integer.parseInt(value); break;
+                case "-window": window = Integer.parseInt(value); break;
+                case "-checkpoint": checkpointEvery = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (window <= 0) window = 64 * threads;
+    }
+
+    private void run() throws IOException, InterruptedException {
+        long[] resume = readCheckpoint();
+        startLine = nextLine = resume[0];
+        outputBytes = resume[1];
+        pending = new String[window];
+        free = new Semaphore(window);
+        tablebase = Tablebase.openDefault();
+
+        FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(outputBytes); // drop what was written after the checkpoint
+        channel.position(outputBytes);
+        out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+        if (nextLine > 0) System.err.println("resuming after line " + nextLine);
+
+        Thread onInterrupt = new Thread(this::checkpoint, "batch-checkpoint");
+        Runtime.getRuntime().addShutdownHook(onInterrupt);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        startNanos = lastProgress = System.nanoTime();
+
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            long seq = 0;
+            while ((line = in.readLine()) != null) {
+                if (seq < startLine) {
+                    seq++;
+                    continue;
+                }
+                free.acquire(); // the reader waits while the window is full
+                long index = seq++;
+                String text = line;
+                workers.execute(() -> {
+                    String result = "";
+                    try {
+                        result = analyse(index, text);
+                    } catch (RuntimeException e) {
+                        System.err.println("line " + (index + 1) + ": " + e);
+                    } finally {
+                        complete(index, result); // a slot is never left waiting
+                    }
+                });
+            }
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        for (ChessBot bot : allBots) bot.shutdown();
+
+        Runtime.getRuntime().removeShutdownHook(onInterrupt);
+        synchronized (this) {
+            out.close();
+            Files.deleteIfExists(checkpoint);
+        }
+        System.err.println(progress() + ", done");
+    }
+
+    // The output line for one input line, "" to leave it out
+    private String analyse(long index, String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length < 2 || fields[0].isEmpty() || fields[0].startsWith("#")) return "";
+        Board board;
+        try {
+            board = Board.fromFen(line);
+        } catch (RuntimeException e) {
+            System.err.println("line " + (index + 1) + ": " + e.getMessage());
+            return "";
+        }
+
+        ChessBot bot = bots.get();
+        if (bot == null) {
+            bot = new ChessBot();
+            bot.setHashSize(hashMb);
+            bot.setTablebase(tablebase);
+            bots.set(bot);
+            allBots.add(bot);
+        }
+        Move best = bot.getBestMoveTimed(new Board(board), movetime, depth, nodes);
+        int move = best == null ? Move.NONE : Uci.parseMove(board, best.toString());
+        if (move == Move.NONE) {
+            System.err.println("line " + (index + 1) + ": no move");
+            return "";
+        }
+
+        int score = board.isWhiteTurn ? bot.getLastScore() : -bot.getLastScore();
+        String epd = board.toFen();
+        epd = epd.substring(0, epd.lastIndexOf(' ', epd.lastIndexOf(' ') - 1)); // without the move counters
+        return epd + " bm " + Tournament.san(board, move) + "; ce " + score + "; acd " + bot.getCompletedDepth()
+                + "; acn " + bot.getNodes() + ";\n";
+    }
+
+    // Stores a result and writes out every line now complete in input order
+    private synchronized void complete(long index, String result) {
+        pending[(int) (index % window)] = result;
+        try {
+            String ready;
+            int released = 0;
+            while ((ready = pending[(int) (nextLine % window)]) != null) {
+                pending[(int) (nextLine % window)] = null;
+                byte[] bytes = ready.getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                outputBytes += bytes.length;
+                nextLine++;
+                released++;
+                if (!ready.isEmpty()) analysed++;
+                if (++sinceCheckpoint >= checkpointEvery) checkpoint();
+            }
+            free.release(released);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long now = System.nanoTime();
+        if (now - lastProgress >= PROGRESS_NANOS) {
+            lastProgress = now;
+            System.err.println(progress());
+        }
+    }
+
+    private synchronized String progress() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("%d lines, %d positions analysed, %.1f positions/s", nextLine, analysed,
+                seconds == 0 ? 0.0 : analysed / seconds);
+    }
+
+    // Flushes the output and records how far it got, replacing the checkpoint in one step
+    private synchronized void checkpoint() {
+        try {
+            out.flush();
+            Path temp = Paths.get(checkpoint + ".tmp");
+            Files.writeString(temp, nextLine + " " + outputBytes + "\n");
+            Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            sinceCheckpoint = 0;
+        } catch (IOException e) {
+            System.err.println("checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    // { input lines done, output bytes } from an earlier run, zeros for a fresh start
+    private long[] readCheckpoint() throws IOException {
+        if (!Files.exists(checkpoint)) {
+            Files.deleteIfExists(output);
+            return new long[] { 0, 0 };
+        }
+        List<String> lines = Files.readAllLines(checkpoint);
+        String[] fields = lines.get(0).trim().split(" ");
+        return new long[] { Long.parseLong(fields[0]), Long.parseLong(fields[1]) };
+    }
+}
@@ -1,301 +1,457 @@
 import java.util.ArrayList;
 import java.util.List;
 
-public class Board {
-
-    public String[][] coins; // 8x8 chessboard
+public final class Board {
+
+    // Bitboard position: bit (row * 8 + col) of a long is one square. Row 0 is black's back rank,
+    // the same layout as Chess.coins, so conversion in both directions is a plain square walk.
+    public long[] pieces = new long[Piece.COUNT]; // one bitboard per piece code
+    public long[] colorBits = new long[2];        // occupancy per colour (Piece.WHITE / Piece.BLACK)
+    public long occupied;                          // every piece on the board
+    int[] squares = new int[64];                   // piece code per square for O(1) lookups
     public boolean isWhiteTurn;
+    public long zobristKey;                        // kept up to date by addPiece/removePiece/make
+    public long pawnKey;                           // Zobrist keys of the pawns only, see PawnHashTable
+    int material;                                  // white minus black, see MATERIAL
+    int positional;                                // piece-square sum, see PIECE_SQUARE
     List<Move> history = new ArrayList<>();
 
+    // Undo stack for make()/unmake(). Preallocated so the search can walk the tree on one board.
+    // The packed move already carries the moved, captured and promoted pieces.
+    public static final int MAX_PLY = 128;
+    private final int[] moveStack = new int[MAX_PLY];
+    private final boolean[] undoWhiteTurn = new boolean[MAX_PLY];
+    private int ply;
+
     public Board(String[][] coins, boolean isWhiteTurn) {
-        this.coins = new String[8][8];
-        for (int i = 0; i < 8; i++) {
-            System.arraycopy(coins[i], 0, this.coins[i], 0, 8);
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int piece = Piece.fromGlyph(coins[row][col]);
+                if (piece != Piece.EMPTY) addPiece(piece, square(row, col));
+            }
         }
         this.isWhiteTurn = isWhiteTurn;
+        if (!isWhiteTurn) zobristKey ^= Zobrist.SIDE;
+    }
+
+    // Reads the placement and side-to-move fields of a FEN string. The remaining fields
+    // (castling, en passant, clocks) are ignored since the rules here do not use them.
+    public static Board fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[][] coins = new String[8][8];
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) throw new IllegalArgumentException("Bad FEN placement: " + fen);
+        for (int row = 0; row < 8; row++) {
+            int col = 0;
+            for (char c : ranks[row].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                } else {
+                    int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+                    if (type < 0 || col > 7) throw new IllegalArgumentException("Bad FEN placement: " + fen);
+                    // pawns promote on arrival, and the evaluation has no entries for them there
+                    if (type == Piece.PAWN && (row == 0 || row == 7)) throw new IllegalArgumentException("Pawn on a back rank: " + fen);
+                    int color = Character.isUpperCase(c) ? Piece.WHITE : Piece.BLACK;
+                    coins[row][col++] = Piece.glyph(Piece.make(color, type));
+                }
+            }
+            if (col != 8) throw new IllegalArgumentException("Bad FEN placement: " + fen);
+        }
+        boolean whiteToMove = fields.length < 2 || fields[1].equals("w");
+        return new Board(coins, whiteToMove);
+    }
+
+    // Placement and side to move as FEN; the other fields are written as "- - 0 1"
+    public String toFen() {
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = squares[square(row, col)];
+                if (piece == Piece.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) fen.append(empty);
+                empty = 0;
+                char c = "pnbrqk".charAt(Piece.type(piece));
+                fen.append(Piece.isWhite(piece) ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) fen.append(empty);
+            if (row < 7) fen.append('/');
+        }
+        return fen.append(isWhiteTurn ? " w" : " b").append(" - - 0 1").toString();
     }
 
     // Clone constructor (for simulation)
     public Board(Board other) {
-        this(other.coins, other.isWhiteTurn);
+        System.arraycopy(other.pieces, 0, pieces, 0, Piece.COUNT);
+        System.arraycopy(other.colorBits, 0, colorBits, 0, 2);
+        System.arraycopy(other.squares, 0, squares, 0, 64);
+        occupied = other.occupied;
+        isWhiteTurn = other.isWhiteTurn;
+        zobristKey = other.zobristKey;
+        pawnKey = other.pawnKey;
+        material = other.material;
+        positional = other.positional;
+    }
+
+    public static int square(int row, int col) {
+        return row * 8 + col;
+    }
+
+    // Back to the glyph matrix used by the Swing UI
+    public String[][] toCoins() {
+        String[][] coins = new String[8][8];
+        for (int sq = 0; sq < 64; sq++) {
+            coins[sq >> 3][sq & 7] = Piece.glyph(squares[sq]);
+        }
+        return coins;
+    }
+
+    void addPiece(int piece, int sq) {
+        long bit = 1L << sq;
+        pieces[piece] |= bit;
+        colorBits[Piece.color(piece)] |= bit;
+        occupied |= bit;
+        squares[sq] = piece;
+        zobristKey ^= Zobrist.PIECE_SQUARE[piece][sq];
+        if (piece == Piece.WHITE_PAWN || piece == Piece.BLACK_PAWN) pawnKey ^= Zobrist.PIECE_SQUARE[piece][sq];
+        material += MATERIAL[piece];
+        positional += PIECE_SQUARE[piece][sq];
+    }
+
+    void removePiece(int piece, int sq) {
+        long bit = ~(1L << sq);
+        pieces[piece] &= bit;
+        colorBits[Piece.color(piece)] &= bit;
+        occupied &= bit;
+        squares[sq] = Piece.EMPTY;
+        zobristKey ^= Zobrist.PIECE_SQUARE[piece][sq];
+        if (piece == Piece.WHITE_PAWN || piece == Piece.BLACK_PAWN) pawnKey ^= Zobrist.PIECE_SQUARE[piece][sq];
+        material -= MATERIAL[piece];
+        positional -= PIECE_SQUARE[piece][sq];
+    }
+
+    public int getPiece(int sq) {
+        return squares[sq];
     }
 
     public String getPieceAt(int row, int col) {
-    return coins[row][col];
-}
+        return Piece.glyph(squares[square(row, col)]);
+    }
 
-public int pieceValue(String piece) {
-    if (piece == null) return 0;
+    public int pieceValue(String piece) {
+        return pieceValue(Piece.fromGlyph(piece));
+    }
 
-    switch (piece) {
-        case "♙": case "♟": return 10;
-        case "♘": case "♞": return 30;
-        case "♗": case "♝": return 30;
-        case "♖": case "♜": return 50;
-        case "♕": case "♛": return 90;
-        case "♔": case "♚": return 900;
-        default: return 0;
+    public int pieceValue(int piece) {
+        if (piece == Piece.EMPTY) return 0;
+        return PIECE_VALUES[Piece.type(piece)];
     }
-}
+
+    static final int[] PIECE_VALUES = { 100, 300, 300, 500, 900, 9000 }; // centipawns
 
 
     public List<Move> getAllLegalMoves(boolean forWhite) {
         List<Move> moves = new ArrayList<>();
-
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                String piece = coins[fromRow][fromCol];
-                if (piece == null) continue;
-
-                if ((forWhite && isWhite(piece)) || (!forWhite && isBlack(piece))) {
-                    for (int toRow = 0; toRow < 8; toRow++) {
-                        for (int toCol = 0; toCol < 8; toCol++) {
-                            if (isLegalMove(fromRow, fromCol, toRow, toCol, piece)) {
-                                moves.add(new Move(fromRow, fromCol, toRow, toCol));
-                            }
-                        }
-                    }
-                }
-            }
-        }
+        MoveGenerator.generate(this, forWhite ? Piece.WHITE : Piece.BLACK, MoveGenerator.ALL_MOVES, moves);
         return moves;
     }
 
     public ArrayList<Move> getAllLegalMoves() {
         ArrayList<Move> moves = new ArrayList<>();
+        MoveGenerator.generate(this, isWhiteTurn ? Piece.WHITE : Piece.BLACK, MoveGenerator.ALL_MOVES, moves);
+        return moves;
+    }
 
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                String piece = coins[fromRow][fromCol];
-                if (piece == null) continue;
-
-                if ((isWhiteTurn && isWhite(piece)) || (!isWhiteTurn && isBlack(piece))) {
-                    for (int toRow = 0; toRow < 8; toRow++) {
-                        for (int toCol = 0; toCol < 8; toCol++) {
-                            if (isLegalMove(fromRow, fromCol, toRow, toCol, piece)) {
-                                moves.add(new Move(fromRow, fromCol, toRow, toCol));
-                            }
-                        }
-                    }
-                }
-            }
-        }
+    public ArrayList<Move> getCaptureMoves() {
+        ArrayList<Move> moves = new ArrayList<>();
+        MoveGenerator.generate(this, isWhiteTurn ? Piece.WHITE : Piece.BLACK, MoveGenerator.CAPTURES, moves);
+        return moves;
+    }
 
+    public ArrayList<Move> getQuietMoves() {
+        ArrayList<Move> moves = new ArrayList<>();
+        MoveGenerator.generate(this, isWhiteTurn ? Piece.WHITE : Piece.BLACK, MoveGenerator.QUIETS, moves);
         return moves;
     }
 
     public Board makeMove(Move move) {
         Board newBoard = new Board(this);
 
-        
+
         newBoard.history.addAll(this.history);
         newBoard.history.add(move);
-        String piece = newBoard.coins[move.fromRow][move.fromCol];
-        newBoard.coins[move.toRow][move.toCol] = piece;
-        newBoard.coins[move.fromRow][move.fromCol] = null;
+        int from = square(move.fromRow, move.fromCol);
+        int to = square(move.toRow, move.toCol);
+        int piece = newBoard.squares[from];
+        int captured = newBoard.squares[to];
+
+        if (captured != Piece.EMPTY) newBoard.removePiece(captured, to);
+        newBoard.removePiece(piece, from);
 
         // CHECK FOR POWN PROMOTION
-        if ("♙".equals(piece) && move.toRow == 0) {
-        newBoard.coins[move.toRow][move.toCol] = "♕"; // promote to white queen
-    } else if ("♟".equals(piece) && move.toRow == 7) {
-        newBoard.coins[move.toRow][move.toCol] = "♛"; // promote to black queen
-    }
+        if (piece == Piece.WHITE_PAWN && move.toRow == 0) {
+            piece = Piece.WHITE_QUEEN; // promote to white queen
+        } else if (piece == Piece.BLACK_PAWN && move.toRow == 7) {
+            piece = Piece.BLACK_QUEEN; // promote to black queen
+        }
+        newBoard.addPiece(piece, to);
 
         newBoard.isWhiteTurn = !newBoard.isWhiteTurn;
+        newBoard.zobristKey ^= Zobrist.SIDE;
 
         return newBoard;
     }
 
-    public boolean isRepetitive(Move move) {
-        int count = 0;
-        for (int i = history.size() - 4; i >= 0 && count < 4; i--) {
-            if (history.get(i).equals(move)) count++;
+    // Packs a row/column move from the UI side using the pieces currently on the board
+    public int encode(Move move) {
+        int from = square(move.fromRow, move.fromCol);
+        int to = square(move.toRow, move.toCol);
+        int piece = squares[from];
+        int promoted = Piece.EMPTY;
+
+        if (piece == Piece.WHITE_PAWN && move.toRow == 0) {
+            promoted = Piece.WHITE_QUEEN;
+        } else if (piece == Piece.BLACK_PAWN && move.toRow == 7) {
+            promoted = Piece.BLACK_QUEEN;
         }
-        return count >= 2;
+        return Move.encode(from, to, piece, squares[to], promoted);
+    }
+
+    // In-place version of makeMove(). Every call must be paired with unmake() of the same move.
+    // The undo stack holds MAX_PLY moves, enough for a search; moves of a game go through play().
+    public void make(Move move) {
+        make(encode(move));
+    }
+
+    public void unmake(Move move) {
+        unmake(moveStack[ply - 1]);
     }
 
-    private static final double[][] PAWN_TABLE = {
-    { 0, 0, 0, 0, 0, 0, 0, 0 },
-    { 5, 5, 5, -5, -5, 5, 5, 5 },
-    { 1, 1, 2, 3, 3, 2, 1, 1 },
-    { 0.5, 0.5, 1, 2.5, 2.5, 1, 0.5, 0.5 },
-    { 0, 0, 0, 2, 2, 0, 0, 0 },
-    { 0.5, -0.5, -1, 0, 0, -1, -0.5, 0.5 },
-    { 0.5, 1, 1, -2, -2, 1, 1, 0.5 },
-    { 0, 0, 0, 0, 0, 0, 0, 0 }
-};
-
-private static final double[][] KNIGHT_TABLE = {
-    {-5, -4, -3, -3, -3, -3, -4, -5},
-    {-4, -2, 0, 0, 0, 0, -2, -4},
-    {-3, 0, 1, 1.5, 1.5, 1, 0, -3},
-    {-3, 0.5, 1.5, 2, 2, 1.5, 0.5, -3},
-    {-3, 0, 1.5, 2, 2, 1.5, 0, -3},
-    {-3, 0.5, 1, 1.5, 1.5, 1, 0.5, -3},
-    {-4, -2, 0, 0.5, 0.5, 0, -2, -4},
-    {-5, -4, -3, -3, -3, -3, -4, -5}
-};
-
-private static final double[][] BISHOP_TABLE = {
-    {-2, -1, -1, -1, -1, -1, -1, -2},
-    {-1, 0, 0, 0, 0, 0, 0, -1},
-    {-1, 0, 0.5, 1, 1, 0.5, 0, -1},
-    {-1, 0.5, 0.5, 1, 1, 0.5, 0.5, -1},
-    {-1, 0, 1, 1, 1, 1, 0, -1},
-    {-1, 1, 1, 1, 1, 1, 1, -1},
-    {-1, 0.5, 0, 0, 0, 0, 0.5, -1},
-    {-2, -1, -1, -1, -1, -1, -1, -2}
-};
-
-private static final double[][] ROOK_TABLE = {
-    {0, 0, 0, 0.5, 0.5, 0, 0, 0},
-    {-0.5, 0, 0, 0, 0, 0, 0, -0.5},
-    {-0.5, 0, 0, 0, 0, 0, 0, -0.5},
-    {-0.5, 0, 0, 0, 0, 0, 0, -0.5},
-    {-0.5, 0, 0, 0, 0, 0, 0, -0.5},
-    {-0.5, 0, 0, 0, 0, 0, 0, -0.5},
-    {0.5, 1, 1, 1, 1, 1, 1, 0.5},
-    {0, 0, 0, 0, 0, 0, 0, 0}
-};
-
-private static final double[][] QUEEN_TABLE = {
-    {-2, -1, -1, -0.5, -0.5, -1, -1, -2},
-    {-1, 0, 0, 0, 0, 0, 0, -1},
-    {-1, 0, 0.5, 0.5, 0.5, 0.5, 0, -1},
-    {-0.5, 0, 0.5, 0.5, 0.5, 0.5, 0, -0.5},
-    {0, 0, 0.5, 0.5, 0.5, 0.5, 0, -0.5},
-    {-1, 0.5, 0.5, 0.5, 0.5, 0.5, 0, -1},
-    {-1, 0, 0.5, 0, 0, 0, 0, -1},
-    {-2, -1, -1, -0.5, -0.5, -1, -1, -2}
-};
-
-private static final double[][] KING_TABLE = {
-    {-3, -4, -4, -5, -5, -4, -4, -3},
-    {-3, -4, -4, -5, -5, -4, -4, -3},
-    {-3, -4, -4, -5, -5, -4, -4, -3},
-    {-3, -4, -4, -5, -5, -4, -4, -3},
-    {-2, -3, -3, -4, -4, -3, -3, -2},
-    {-1, -2, -2, -2, -2, -2, -2, -1},
-    {2, 2, 0, 0, 0, 0, 2, 2},
-    {2, 3, 1, 0, 0, 1, 3, 2}
-};
+    public void make(int move) {
+        if (ply == MAX_PLY) throw new IllegalStateException("undo stack full after " + MAX_PLY + " moves, use play() for game moves");
+        moveStack[ply] = move;
+        undoWhiteTurn[ply] = isWhiteTurn;
+        ply++;
+        play(move);
+    }
 
+    // Plays a move for good: nothing is pushed on the undo stack, so a game of any length can be
+    // played on one board. It cannot be taken back with unmake().
+    public void play(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = Move.piece(move);
+        int captured = Move.captured(move);
+        int promoted = Move.promoted(move);
+
+        if (captured != Piece.EMPTY) removePiece(captured, to);
+        removePiece(piece, from);
+        addPiece(promoted != Piece.EMPTY ? promoted : piece, to);
+        isWhiteTurn = !isWhiteTurn;
+        zobristKey ^= Zobrist.SIDE;
+    }
 
+    public void unmake(int move) {
+        ply--;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = Move.piece(move);
+        int captured = Move.captured(move);
+        int promoted = Move.promoted(move);
+
+        removePiece(promoted != Piece.EMPTY ? promoted : piece, to);
+        addPiece(piece, from);
+        if (captured != Piece.EMPTY) addPiece(captured, to);
+        isWhiteTurn = undoWhiteTurn[ply];
+        zobristKey ^= Zobrist.SIDE;
+    }
 
+    // Passes the turn without moving (null-move pruning). Pair with unmakeNull().
+    public void makeNull() {
+        if (ply == MAX_PLY) throw new IllegalStateException("undo stack full after " + MAX_PLY + " moves");
+        moveStack[ply] = Move.NONE;
+        undoWhiteTurn[ply] = isWhiteTurn;
+        ply++;
+        isWhiteTurn = !isWhiteTurn;
+        zobristKey ^= Zobrist.SIDE;
+    }
 
-    public int evaluate() {
-    int score = 0;
-    for (int r = 0; r < 8; r++) {
-        for (int c = 0; c < 8; c++) {
-            String piece = coins[r][c];
-            if (piece == null) continue;
-
-            int value = 0;
-            double positional = 0;
-
-            switch (piece) {
-                case "♙":
-                    value = 10;
-                    positional = PAWN_TABLE[r][c];
-                    break;
-                case "♘":
-                    value = 30;
-                    positional = KNIGHT_TABLE[r][c];
-                    break;
-                case "♗":
-                    value = 30;
-                    positional = BISHOP_TABLE[r][c];
-                    break;
-                case "♖":
-                    value = 50;
-                    positional = ROOK_TABLE[r][c];
-                    break;
-                case "♕":
-                    value = 90;
-                    positional = QUEEN_TABLE[r][c];
-                    break;
-                case "♔":
-                    value = 900;
-                    positional = KING_TABLE[r][c];
-                    break;
+    public void unmakeNull() {
+        ply--;
+        isWhiteTurn = undoWhiteTurn[ply];
+        zobristKey ^= Zobrist.SIDE;
+    }
 
-                case "♟":
-                    value = -10;
-                    positional = -PAWN_TABLE[7 - r][c];
-                    break;
-                case "♞":
-                    value = -30;
-                    positional = -KNIGHT_TABLE[7 - r][c];
-                    break;
-                case "♝":
-                    value = -30;
-                    positional = -BISHOP_TABLE[7 - r][c];
-                    break;
-                case "♜":
-                    value = -50;
-                    positional = -ROOK_TABLE[7 - r][c];
-                    break;
-                case "♛":
-                    value = -90;
-                    positional = -QUEEN_TABLE[7 - r][c];
-                    break;
-                case "♚":
-                    value = -900;
-                    positional = -KING_TABLE[7 - r][c];
-                    break;
-            }
+    // Material of one side's knights, bishops, rooks and queens; low values mean an endgame
+    // where passing the turn can be an advantage (zugzwang)
+    public int nonPawnMaterial(int color) {
+        int total = 0;
+        for (int type = Piece.KNIGHT; type <= Piece.QUEEN; type++) {
+            total += Long.bitCount(pieces[Piece.make(color, type)]) * PIECE_VALUES[type];
+        }
+        return total;
+    }
 
-            score += value + (int) positional;
+    public boolean isRepetitive(Move move) {
+        int count = 0;
+        for (int i = history.size() - 4; i >= 0 && count < 4; i--) {
+            if (history.get(i).equals(move)) count++;
         }
+        return count >= 2;
     }
 
-    return score;
-}
+    // Piece-square tables in centipawns, from white's side: index row * 8 + col, row 0 is
+    // black's back rank. Black reads them mirrored (see PIECE_SQUARE below).
+    private static final int[] PAWN_TABLE = {
+        0, 0, 0, 0, 0, 0, 0, 0,
+        50, 50, 50, -50, -50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+        5, 5, 10, 25, 25, 10, 5, 5,
+        0, 0, 0, 20, 20, 0, 0, 0,
+        5, -5, -10, 0, 0, -10, -5, 5,
+        5, 10, 10, -20, -20, 10, 10, 5,
+        0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private static final int[] KNIGHT_TABLE = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20, 0, 0, 0, 0, -20, -40,
+        -30, 0, 10, 15, 15, 10, 0, -30,
+        -30, 5, 15, 20, 20, 15, 5, -30,
+        -30, 0, 15, 20, 20, 15, 0, -30,
+        -30, 5, 10, 15, 15, 10, 5, -30,
+        -40, -20, 0, 5, 5, 0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+
+    private static final int[] BISHOP_TABLE = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10, 0, 0, 0, 0, 0, 0, -10,
+        -10, 0, 5, 10, 10, 5, 0, -10,
+        -10, 5, 5, 10, 10, 5, 5, -10,
+        -10, 0, 10, 10, 10, 10, 0, -10,
+        -10, 10, 10, 10, 10, 10, 10, -10,
+        -10, 5, 0, 0, 0, 0, 5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+
+    private static final int[] ROOK_TABLE = {
+        0, 0, 0, 5, 5, 0, 0, 0,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        5, 10, 10, 10, 10, 10, 10, 5,
+        0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private static final int[] QUEEN_TABLE = {
+        -20, -10, -10, -5, -5, -10, -10, -20,
+        -10, 0, 0, 0, 0, 0, 0, -10,
+        -10, 0, 5, 5, 5, 5, 0, -10,
+        -5, 0, 5, 5, 5, 5, 0, -5,
+        0, 0, 5, 5, 5, 5, 0, -5,
+        -10, 5, 5, 5, 5, 5, 0, -10,
+        -10, 0, 5, 0, 0, 0, 0, -10,
+        -20, -10, -10, -5, -5, -10, -10, -20
+    };
+
+    private static final int[] KING_TABLE = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+        20, 20, 0, 0, 0, 0, 20, 20,
+        20, 30, 10, 0, 0, 10, 30, 20
+    };
+
+
+    // Material plus piece-square value of every (piece, square), signed from white's side, with
+    // black's mirroring already applied. addPiece/removePiece add and subtract these entries.
+    static final int[] MATERIAL = new int[Piece.COUNT];
+    static final int[][] PIECE_SQUARE = new int[Piece.COUNT][64];
+
+    static {
+        int[][] tables = { PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_TABLE };
+        for (int piece = Piece.WHITE_PAWN; piece < Piece.COUNT; piece++) {
+            int type = Piece.type(piece);
+            boolean white = Piece.isWhite(piece);
+            MATERIAL[piece] = white ? PIECE_VALUES[type] : -PIECE_VALUES[type];
+            for (int sq = 0; sq < 64; sq++) {
+                int r = sq >> 3, c = sq & 7;
+                PIECE_SQUARE[piece][sq] = white ? tables[type][sq] : -tables[type][(7 - r) * 8 + c];
+            }
+        }
+    }
+
+    // Material and piece-square terms are kept up to date as pieces move; the pawn structure is
+    // worked out from scratch here. The search uses evaluate(PawnHashTable) instead.
+    public int evaluate() {
+        long white = pieces[Piece.WHITE_PAWN], black = pieces[Piece.BLACK_PAWN];
+        return material + positional + PawnStructure.score(white, black)
+                + PawnStructure.freePassers(occupied, PawnStructure.passedPawns(Piece.WHITE, white, black),
+                        PawnStructure.passedPawns(Piece.BLACK, black, white));
+    }
+
+    // Same value as evaluate(), with the pawn structure looked up in (or added to) pawnTable
+    public int evaluate(PawnHashTable pawnTable) {
+        return material + positional + pawnTable.evaluate(this);
+    }
 
 
 
-    public boolean isWhite(String piece) {
-        return piece != null && "♖♘♗♕♔♙".contains(piece);
+    public boolean isWhite(int piece) {
+        return Piece.isWhite(piece);
     }
 
-    public boolean isBlack(String piece) {
-        return piece != null && "♜♞♝♛♚♟".contains(piece);
+    public boolean isBlack(int piece) {
+        return Piece.isBlack(piece);
     }
 
-    public boolean isSameTeam(String p1, String p2) {
-        return (isWhite(p1) && isWhite(p2)) || (isBlack(p1) && isBlack(p2));
+    public boolean isSameTeam(int p1, int p2) {
+        return p1 != Piece.EMPTY && p2 != Piece.EMPTY && Piece.color(p1) == Piece.color(p2);
     }
 
-    public boolean isLegalMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-        if (piece == null || (coins[toRow][toCol] != null && isSameTeam(piece, coins[toRow][toCol])))
+    public boolean isLegalMove(int fromRow, int fromCol, int toRow, int toCol, int piece) {
+        if (piece == Piece.EMPTY || isSameTeam(piece, squares[square(toRow, toCol)]))
             return false;
 
-        switch (piece) {
-            case "♙": case "♟": return isLegalPawnMove(fromRow, fromCol, toRow, toCol, piece);
-            case "♘": case "♞": return isLegalKnightMove(fromRow, fromCol, toRow, toCol, piece);
-            case "♗": case "♝": return isLegalBishopMove(fromRow, fromCol, toRow, toCol, piece);
-            case "♖": case "♜": return isLegalRookMove(fromRow, fromCol, toRow, toCol, piece);
-            case "♕": case "♛": return isLegalQueenMove(fromRow, fromCol, toRow, toCol, piece);
-            case "♔": case "♚": return isLegalKingMove(fromRow, fromCol, toRow, toCol, piece);
+        switch (Piece.type(piece)) {
+            case Piece.PAWN: return isLegalPawnMove(fromRow, fromCol, toRow, toCol, piece);
+            case Piece.KNIGHT: return isLegalKnightMove(fromRow, fromCol, toRow, toCol, piece);
+            case Piece.BISHOP: return isLegalBishopMove(fromRow, fromCol, toRow, toCol, piece);
+            case Piece.ROOK: return isLegalRookMove(fromRow, fromCol, toRow, toCol, piece);
+            case Piece.QUEEN: return isLegalQueenMove(fromRow, fromCol, toRow, toCol, piece);
+            case Piece.KING: return isLegalKingMove(fromRow, fromCol, toRow, toCol, piece);
             default: return false;
         }
     }
 
-    public boolean isLegalPawnMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
+    private boolean isEmpty(int row, int col) {
+        return (occupied & (1L << square(row, col))) == 0;
+    }
+
+    public boolean isLegalPawnMove(int fromRow, int fromCol, int toRow, int toCol, int piece) {
         int direction = isWhite(piece) ? -1 : 1;
         int startRow = isWhite(piece) ? 6 : 1;
-        String destinationPiece = coins[toRow][toCol];
+        int destinationPiece = squares[square(toRow, toCol)];
 
-        if (fromCol == toCol && toRow == fromRow + direction && destinationPiece == null) {
+        if (fromCol == toCol && toRow == fromRow + direction && destinationPiece == Piece.EMPTY) {
             return true;
         }
 
         if (fromCol == toCol && fromRow == startRow && toRow == fromRow + 2 * direction
-                && destinationPiece == null && coins[fromRow + direction][fromCol] == null) {
+                && destinationPiece == Piece.EMPTY && isEmpty(fromRow + direction, fromCol)) {
             return true;
         }
 
-        if (Math.abs(fromCol - toCol) == 1 && toRow == fromRow + direction && destinationPiece != null
+        if (Math.abs(fromCol - toCol) == 1 && toRow == fromRow + direction && destinationPiece != Piece.EMPTY
                 && !isSameTeam(piece, destinationPiece)) {
             return true;
         }
@@ -303,74 +459,130 @@ private static final double[][] KING_TABLE = {
         return false;
     }
 
-    public boolean isLegalKnightMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-        int rowDiff = Math.abs(fromRow - toRow);
-        int colDiff = Math.abs(fromCol - toCol);
-        String targetPiece = coins[toRow][toCol];
+    public boolean isLegalKnightMove(int fromRow, int fromCol, int toRow, int toCol, int piece) {
+        int to = square(toRow, toCol);
+        return (Attacks.knightAttacks(square(fromRow, fromCol)) & (1L << to)) != 0
+                && !isSameTeam(squares[to], piece);
+    }
 
-        boolean isLShape = ((rowDiff == 2 && colDiff == 1) || (rowDiff == 1 && colDiff == 2));
-        return isLShape && (targetPiece == null || !isSameTeam(targetPiece, piece));
+    public boolean isLegalBishopMove(int fromRow, int fromCol, int toRow, int toCol, int piece) {
+        int to = square(toRow, toCol);
+        return (Attacks.bishopAttacks(square(fromRow, fromCol), occupied) & (1L << to)) != 0
+                && !isSameTeam(piece, squares[to]);
     }
 
-    public boolean isLegalBishopMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-        int rowDiff = Math.abs(toRow - fromRow);
-        int colDiff = Math.abs(toCol - fromCol);
+    public boolean isLegalRookMove(int fromRow, int fromCol, int toRow, int toCol, int piece) {
+        int to = square(toRow, toCol);
+        return (Attacks.rookAttacks(square(fromRow, fromCol), occupied) & (1L << to)) != 0
+                && !isSameTeam(piece, squares[to]);
+    }
 
-        if (rowDiff != colDiff) return false;
+    public boolean isLegalQueenMove(int fromRow, int fromCol, int toRow, int toCol, int piece) {
+        int to = square(toRow, toCol);
+        return (Attacks.queenAttacks(square(fromRow, fromCol), occupied) & (1L << to)) != 0
+                && !isSameTeam(piece, squares[to]);
+    }
 
-        int rowDirection = (toRow > fromRow) ? 1 : -1;
-        int colDirection = (toCol > fromCol) ? 1 : -1;
+    public boolean isLegalKingMove(int fromRow, int fromCol, int toRow, int toCol, int piece) {
+        int to = square(toRow, toCol);
+        return (Attacks.kingAttacks(square(fromRow, fromCol)) & (1L << to)) != 0
+                && !isSameTeam(piece, squares[to]);
+    }
 
-        int r = fromRow + rowDirection;
-        int c = fromCol + colDirection;
+    // ////////////////////////////// check detection
 
-        while (r != toRow || c != toCol) {
-            if (r < 0 || r >= 8 || c < 0 || c >= 8) return false;
-            if (coins[r][c] != null) return false;
-            r += rowDirection;
-            c += colDirection;
-        }
+    public boolean isSquareAttacked(int sq, int byColor) {
+        int them = byColor;
+        // a pawn of colour 'them' attacks sq exactly when a pawn of the other colour on sq would attack it
+        if ((Attacks.pawnAttacks(1 - them, sq) & pieces[Piece.make(them, Piece.PAWN)]) != 0) return true;
+        if ((Attacks.knightAttacks(sq) & pieces[Piece.make(them, Piece.KNIGHT)]) != 0) return true;
+        if ((Attacks.kingAttacks(sq) & pieces[Piece.make(them, Piece.KING)]) != 0) return true;
 
-        String destinationPiece = coins[toRow][toCol];
-        return destinationPiece == null || !isSameTeam(piece, destinationPiece);
+        long queens = pieces[Piece.make(them, Piece.QUEEN)];
+        if ((Attacks.bishopAttacks(sq, occupied) & (pieces[Piece.make(them, Piece.BISHOP)] | queens)) != 0) return true;
+        return (Attacks.rookAttacks(sq, occupied) & (pieces[Piece.make(them, Piece.ROOK)] | queens)) != 0;
     }
 
-    public boolean isLegalRookMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-        boolean isVertical = fromCol == toCol && fromRow != toRow;
-        boolean isHorizontal = fromRow == toRow && fromCol != toCol;
-
-        if (!isVertical && !isHorizontal) return false;
-
-        int rowDirection = Integer.compare(toRow, fromRow);
-        int colDirection = Integer.compare(toCol, fromCol);
+    public boolean isKingInCheck(boolean whiteKing) {
+        long king = pieces[whiteKing ? Piece.WHITE_KING : Piece.BLACK_KING];
+        if (king == 0) return false; // king not found
+        return isSquareAttacked(Long.numberOfTrailingZeros(king), whiteKing ? Piece.BLACK : Piece.WHITE);
+    }
 
-        int r = fromRow + rowDirection;
-        int c = fromCol + colDirection;
+    // ////////////////////////////// static exchange evaluation
+
+    // Every piece of either colour attacking sq, given the occupancy
+    public long attackersTo(int sq, long occupancy) {
+        long rooksQueens = pieces[Piece.WHITE_ROOK] | pieces[Piece.BLACK_ROOK]
+                | pieces[Piece.WHITE_QUEEN] | pieces[Piece.BLACK_QUEEN];
+        long bishopsQueens = pieces[Piece.WHITE_BISHOP] | pieces[Piece.BLACK_BISHOP]
+                | pieces[Piece.WHITE_QUEEN] | pieces[Piece.BLACK_QUEEN];
+        return (Attacks.pawnAttacks(Piece.BLACK, sq) & pieces[Piece.WHITE_PAWN])
+                | (Attacks.pawnAttacks(Piece.WHITE, sq) & pieces[Piece.BLACK_PAWN])
+                | (Attacks.knightAttacks(sq) & (pieces[Piece.WHITE_KNIGHT] | pieces[Piece.BLACK_KNIGHT]))
+                | (Attacks.kingAttacks(sq) & (pieces[Piece.WHITE_KING] | pieces[Piece.BLACK_KING]))
+                | (Attacks.rookAttacks(sq, occupancy) & rooksQueens)
+                | (Attacks.bishopAttacks(sq, occupancy) & bishopsQueens);
+    }
 
-        while (r != toRow || c != toCol) {
-            if (coins[r][c] != null) return false;
-            r += rowDirection;
-            c += colDirection;
+    private final int[] seeGain = new int[32]; // swap list, reused so the search allocates nothing
+
+    // Material the side making this capture expects to win (negative: lose) if both sides keep
+    // recapturing on the target square with their least valuable piece and may stop at any time.
+    // Sliders behind the capturing pieces join in as the pieces in front of them leave.
+    public int staticExchange(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int[] gain = seeGain;
+
+        int depth = 0;
+        int attackerValue = pieceValue(Move.piece(move));
+        gain[0] = pieceValue(Move.captured(move));
+        if (Move.promoted(move) != Piece.EMPTY) {
+            gain[0] += pieceValue(Move.promoted(move)) - attackerValue;
+            attackerValue = pieceValue(Move.promoted(move));
         }
 
-        String destinationPiece = coins[toRow][toCol];
-        return destinationPiece == null || !isSameTeam(piece, destinationPiece);
-    }
-
-    public boolean isLegalQueenMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-        return isLegalBishopMove(fromRow, fromCol, toRow, toCol, piece) ||
-               isLegalRookMove(fromRow, fromCol, toRow, toCol, piece);
-    }
+        long occupancy = occupied ^ (1L << from);
+        long attackers = attackersTo(to, occupancy) & occupancy;
+        long diagonal = pieces[Piece.WHITE_BISHOP] | pieces[Piece.BLACK_BISHOP]
+                | pieces[Piece.WHITE_QUEEN] | pieces[Piece.BLACK_QUEEN];
+        long straight = pieces[Piece.WHITE_ROOK] | pieces[Piece.BLACK_ROOK]
+                | pieces[Piece.WHITE_QUEEN] | pieces[Piece.BLACK_QUEEN];
+        int side = 1 - Piece.color(Move.piece(move));
+
+        while (depth < gain.length - 1) {
+            long ours = attackers & colorBits[side];
+            if (ours == 0) break;
+
+            // least valuable attacker of the side to recapture
+            int type = Piece.PAWN;
+            long bit = 0;
+            for (; type <= Piece.KING; type++) {
+                long candidates = ours & pieces[Piece.make(side, type)];
+                if (candidates != 0) {
+                    bit = candidates & -candidates;
+                    break;
+                }
+            }
 
-    public boolean isLegalKingMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-        int rowDiff = Math.abs(toRow - fromRow);
-        int colDiff = Math.abs(toCol - fromCol);
+            depth++;
+            gain[depth] = attackerValue - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) break; // neither side can gain by going on
 
-        if (rowDiff <= 1 && colDiff <= 1) {
-            String targetPiece = coins[toRow][toCol];
-            return targetPiece == null || !isSameTeam(piece, targetPiece);
+            attackerValue = PIECE_VALUES[type];
+            occupancy ^= bit;
+            attackers |= (Attacks.bishopAttacks(to, occupancy) & diagonal)
+                    | (Attacks.rookAttacks(to, occupancy) & straight);
+            attackers &= occupancy;
+            side = 1 - side;
         }
 
-        return false;
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
     }
+
 }
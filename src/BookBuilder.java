@@ -0,0 +1,95 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes an OpeningBook from opening lines given as moves in coordinate notation, one line per
+// text line ("e2e4 e7e5 g1f3 ..."; '#' starts a comment). Every position along a line gets an
+// entry for the move played from it, weighted by how many lines play that move there.
+//
+//   java BookBuilder                          built-in lines, writes book.bin
+//   java BookBuilder <lines.txt> [book.bin]
+//
+// Castling does not exist in these rules, so the lines stop before either side would castle.
+// The output is a Polyglot book keyed by OpeningBook.polyglotKey, so other Polyglot readers open it too.
+public class BookBuilder {
+
+    static final String[] LINES = {
+        "e2e4 e7e5 g1f3 b8c6 f1c4 f8c5 c2c3 g8f6 d2d3 d7d6",   // Italian
+        "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6 d2d3 d7d6",   // Ruy Lopez
+        "e2e4 e7e5 g1f3 b8c6 d2d4 e5d4 f3d4 g8f6 d4c6 b7c6",   // Scotch
+        "e2e4 e7e5 g1f3 b8c6 b1c3 g8f6 f1b5 f8b4",             // Four Knights
+        "e2e4 e7e5 g1f3 g8f6 f3e5 d7d6 e5f3 f6e4 d2d4 d6d5",   // Petroff
+        "e2e4 c7c5 g1f3 d7d6 d2d4 c5d4 f3d4 g8f6 b1c3 a7a6",   // Sicilian Najdorf
+        "e2e4 c7c5 g1f3 b8c6 d2d4 c5d4 f3d4 g8f6 b1c3 e7e5",   // Sicilian Sveshnikov
+        "e2e4 e7e6 d2d4 d7d5 b1c3 g8f6 c1g5 f8e7 e4e5 f6d7",   // French
+        "e2e4 c7c6 d2d4 d7d5 b1c3 d5e4 c3e4 c8f5 e4g3 f5g6",   // Caro-Kann
+        "e2e4 d7d5 e4d5 d8d5 b1c3 d5a5 d2d4 g8f6 g1f3 c8f5",   // Scandinavian
+        "d2d4 d7d5 c2c4 e7e6 b1c3 g8f6 c1g5 f8e7 e2e3 h7h6",   // Queen's Gambit Declined
+        "d2d4 d7d5 c2c4 c7c6 g1f3 g8f6 b1c3 d5c4 a2a4 c8f5",   // Slav
+        "d2d4 d7d5 c1f4 g8f6 e2e3 e7e6 g1f3 c7c5 c2c3 b8c6",   // London
+        "d2d4 g8f6 c2c4 g7g6 b1c3 f8g7 e2e4 d7d6 g1f3 e7e5",   // King's Indian
+        "d2d4 g8f6 c2c4 e7e6 b1c3 f8b4 e2e3 c7c5 f1d3 d7d5",   // Nimzo-Indian
+        "d2d4 g8f6 c2c4 e7e6 g1f3 b7b6 g2g3 c8b7 f1g2 f8e7",   // Queen's Indian
+        "c2c4 e7e5 b1c3 g8f6 g1f3 b8c6 g2g3 d7d5 c4d5 f6d5",   // English
+        "g1f3 d7d5 g2g3 g8f6 f1g2 c7c6 d2d3 c8g4",             // Reti
+    };
+
+    public static void main(String[] args) throws IOException {
+        List<String> lines = args.length > 0 ? Files.readAllLines(Paths.get(args[0])) : List.of(LINES);
+        Path out = Paths.get(args.length > 1 ? args[1] : OpeningBook.DEFAULT_PATH);
+
+        List<long[]> entries = build(lines);
+        write(out, entries);
+        System.out.println(entries.size() + " entries from " + lines.size() + " lines written to " + out);
+    }
+
+    // Book entries as { key, polyglot move, weight }, sorted the way OpeningBook searches them
+    static List<long[]> build(List<String> lines) {
+        Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+        for (String line : lines) {
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) continue;
+
+            Board board = Board.fromFen(Perft.START);
+            for (String token : text.split("\\s+")) {
+                int count = MoveGenerator.generate(board, board.isWhiteTurn ? Piece.WHITE : Piece.BLACK, MoveGenerator.ALL_MOVES, moves, 0);
+                int move = Move.NONE;
+                for (int i = 0; i < count && move == Move.NONE; i++) {
+                    if (Move.of(moves[i]).toString().equals(token)) move = moves[i]; // queen promotion only, no suffix
+                }
+                if (move == Move.NONE) throw new IllegalArgumentException("illegal move " + token + " in: " + text);
+
+                counts.computeIfAbsent(OpeningBook.polyglotKey(board), k -> new HashMap<>())
+                        .merge(OpeningBook.polyglotMove(move), 1, Integer::sum);
+                board.play(move);
+            }
+        }
+
+        List<long[]> entries = new ArrayList<>();
+        counts.forEach((key, byMove) -> byMove.forEach((move, weight) ->
+                entries.add(new long[] { key, move, Math.min(weight, 0xFFFF) })));
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(b[2], a[2]));
+        return entries;
+    }
+
+    static void write(Path out, List<long[]> entries) throws IOException {
+        try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out)))) {
+            for (long[] entry : entries) {
+                data.writeLong(entry[0]);
+                data.writeShort((int) entry[1]);
+                data.writeShort((int) entry[2]);
+                data.writeInt(0); // learn, unused
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import javax.swing.*;
 
 
@@ -14,6 +18,8 @@ public class Chess {
     boolean gameOver = false;
     JLabel turnLabel;
 ChessBot bot;
+Future<Move> botSearch; // running bot search, null when it is not the bot's turn
+long clickWhen;         // MouseEvent time of the click being handled, for MoveEvent latency
 
 
 
@@ -79,37 +85,20 @@ public void updateTurnLabel() {
     }
 
     public boolean isLegalKnightMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-        int rowDiff=Math.abs(fromRow-toRow);
-        int colDiff=Math.abs(fromCol-toCol);
+        boolean isLShape=(Attacks.knightAttacks(fromRow*8+fromCol) & (1L<<(toRow*8+toCol)))!=0;// precomputed L-shape targets of the knight
         String targetPiece=coins[toRow][toCol];
-
-        boolean isLShape=((rowDiff==2&& colDiff==1)||(rowDiff==1&& colDiff==2));
         return isLShape && (targetPiece ==null || !isSameTeam(targetPiece,piece));// target should be L-shape. move to empty cell or capture opponent(not same team).
     }
 
 
     public boolean isLegalBishopMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-        int rowDiff = Math.abs(toRow - fromRow);
-        int colDiff = Math.abs(toCol - fromCol);
-
-        // Not a diagonal move
-        if (rowDiff != colDiff) {
+        // Not a diagonal move (diagonals of the empty board come from the precomputed attack table)
+        if ((Attacks.bishopAttacks(fromRow * 8 + fromCol, 0L) & (1L << (toRow * 8 + toCol))) == 0) {
             return false;
         }
 
-        int rowDirection = (toRow > fromRow) ? 1 : -1;
-        int colDirection = (toCol > fromCol) ? 1 : -1;
-
-        int r = fromRow + rowDirection;
-        int c = fromCol + colDirection;
-
         // Check path for obstacles
-        while (r != toRow || c != toCol) {
-            if (r < 0 || r >= 8 || c < 0 || c >= 8) return false;
-            if (coins[r][c] != null) return false;
-            r += rowDirection;
-            c += colDirection;
-        }
+        if (!isPathClear(coins, fromRow, fromCol, toRow, toCol)) return false;
 
         // Final destination
         String destinationPiece = coins[toRow][toCol];
@@ -118,24 +107,10 @@ public void updateTurnLabel() {
 
 public boolean isLegalRookMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
     // Rook moves only in straight lines through rows or columns.
-    
-    boolean isVertical = fromCol == toCol && fromRow != toRow;
-    boolean isHorizontal = fromRow == toRow && fromCol != toCol;
+    if ((Attacks.rookAttacks(fromRow * 8 + fromCol, 0L) & (1L << (toRow * 8 + toCol))) == 0) return false;// Not a valid rook move
 
-    if (!isVertical && !isHorizontal) return false;// Not a valid rook move
-
-    int rowDirection = Integer.compare(toRow, fromRow);// Compare toRow and fromRow to determine direction
-    int colDirection = Integer.compare(toCol, fromCol);
-
-    int r = fromRow + rowDirection;
-    int c = fromCol + colDirection;
-
-    while (r != toRow || c != toCol) {// check until we reach destination cell
-        // If any square in between is occupied by a coin, return false
-        if (coins[r][c] != null) return false; // path is blocked
-        r += rowDirection;
-        c += colDirection;
-    }
+    // If any square in between is occupied by a coin, the path is blocked
+    if (!isPathClear(coins, fromRow, fromCol, toRow, toCol)) return false;
 
     // Final destination must be empty or an enemy
     String destinationPiece = coins[toRow][toCol];
@@ -144,17 +119,17 @@ public boolean isLegalRookMove(int fromRow, int fromCol, int toRow, int toCol, S
 
 
 public boolean isLegalQueenMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-    // Use bishop or rook logic for queen
-    return isLegalBishopMove(fromRow, fromCol, toRow, toCol, piece) ||
-           isLegalRookMove(fromRow, fromCol, toRow, toCol, piece);
+    // Queen moves along both bishop and rook lines, so one lookup covers both
+    if ((Attacks.queenAttacks(fromRow * 8 + fromCol, 0L) & (1L << (toRow * 8 + toCol))) == 0) return false;
+    if (!isPathClear(coins, fromRow, fromCol, toRow, toCol)) return false;
+
+    String destinationPiece = coins[toRow][toCol];
+    return destinationPiece == null || !isSameTeam(piece, destinationPiece);
 }
 
 public boolean isLegalKingMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
-    int rowDiff = Math.abs(toRow - fromRow);
-    int colDiff = Math.abs(toCol - fromCol);
-
     // Move only 1 square in any direction
-    if (rowDiff <= 1 && colDiff <= 1) {
+    if ((Attacks.kingAttacks(fromRow * 8 + fromCol) & (1L << (toRow * 8 + toCol))) != 0) {
         String targetPiece = coins[toRow][toCol];
         return targetPiece == null || !isSameTeam(piece, targetPiece);
     }
@@ -162,6 +137,17 @@ public boolean isLegalKingMove(int fromRow, int fromCol, int toRow, int toCol, S
     return false;
 }
 
+// Only the squares strictly between from and to (a precomputed mask) have to be empty
+public static boolean isPathClear(String[][] coins, int fromRow, int fromCol, int toRow, int toCol) {
+    long path = Attacks.between(fromRow * 8 + fromCol, toRow * 8 + toCol);
+    while (path != 0) {
+        int sq = Long.numberOfTrailingZeros(path);
+        if (coins[sq >> 3][sq & 7] != null) return false;
+        path &= path - 1;
+    }
+    return true;
+}
+
 // ////////////////////////////// static moves
 public static boolean isLegalPawnMoveStatic(String[][] coins, int fromRow, int fromCol, int toRow, int toCol, String piece) {
     int direction = "♙".equals(piece) ? -1 : 1;
@@ -177,45 +163,36 @@ public static boolean isLegalPawnMoveStatic(String[][] coins, int fromRow, int f
 }
 
 public static boolean isLegalKnightMoveStatic(String[][] coins, int fromRow, int fromCol, int toRow, int toCol, String piece) {
-    int rowDiff = Math.abs(fromRow - toRow), colDiff = Math.abs(fromCol - toCol);
     String dest = coins[toRow][toCol];
-    return ((rowDiff == 2 && colDiff == 1) || (rowDiff == 1 && colDiff == 2)) &&
+    return (Attacks.knightAttacks(fromRow * 8 + fromCol) & (1L << (toRow * 8 + toCol))) != 0 &&
            (dest == null || !isSameTeamStatic(piece, dest));
 }
 
 public static boolean isLegalBishopMoveStatic(String[][] coins, int fromRow, int fromCol, int toRow, int toCol, String piece) {
-    if (Math.abs(fromRow - toRow) != Math.abs(fromCol - toCol)) return false;
-    int rowDir = Integer.compare(toRow, fromRow), colDir = Integer.compare(toCol, fromCol);
-    int r = fromRow + rowDir, c = fromCol + colDir;
-    while (r != toRow || c != toCol) {
-        if (coins[r][c] != null) return false;
-        r += rowDir; c += colDir;
-    }
+    if ((Attacks.bishopAttacks(fromRow * 8 + fromCol, 0L) & (1L << (toRow * 8 + toCol))) == 0) return false;
+    if (!isPathClear(coins, fromRow, fromCol, toRow, toCol)) return false;
     String dest = coins[toRow][toCol];
     return dest == null || !isSameTeamStatic(piece, dest);
 }
 
 public static boolean isLegalRookMoveStatic(String[][] coins, int fromRow, int fromCol, int toRow, int toCol, String piece) {
-    if (fromRow != toRow && fromCol != toCol) return false;
-    int rowDir = Integer.compare(toRow, fromRow), colDir = Integer.compare(toCol, fromCol);
-    int r = fromRow + rowDir, c = fromCol + colDir;
-    while (r != toRow || c != toCol) {
-        if (coins[r][c] != null) return false;
-        r += rowDir; c += colDir;
-    }
+    if ((Attacks.rookAttacks(fromRow * 8 + fromCol, 0L) & (1L << (toRow * 8 + toCol))) == 0) return false;
+    if (!isPathClear(coins, fromRow, fromCol, toRow, toCol)) return false;
     String dest = coins[toRow][toCol];
     return dest == null || !isSameTeamStatic(piece, dest);
 }
 
 public static boolean isLegalQueenMoveStatic(String[][] coins, int fromRow, int fromCol, int toRow, int toCol, String piece) {
-    return isLegalBishopMoveStatic(coins, fromRow, fromCol, toRow, toCol, piece) ||
-           isLegalRookMoveStatic(coins, fromRow, fromCol, toRow, toCol, piece);
+    if ((Attacks.queenAttacks(fromRow * 8 + fromCol, 0L) & (1L << (toRow * 8 + toCol))) == 0) return false;
+    if (!isPathClear(coins, fromRow, fromCol, toRow, toCol)) return false;
+    String dest = coins[toRow][toCol];
+    return dest == null || !isSameTeamStatic(piece, dest);
 }
 
 public static boolean isLegalKingMoveStatic(String[][] coins, int fromRow, int fromCol, int toRow, int toCol, String piece) {
-    int rowDiff = Math.abs(toRow - fromRow), colDiff = Math.abs(toCol - fromCol);
     String dest = coins[toRow][toCol];
-    return rowDiff <= 1 && colDiff <= 1 && (dest == null || !isSameTeamStatic(piece, dest));
+    return (Attacks.kingAttacks(fromRow * 8 + fromCol) & (1L << (toRow * 8 + toCol))) != 0 &&
+           (dest == null || !isSameTeamStatic(piece, dest));
 }
 
 public static boolean isSameTeamStatic(String a, String b) {
@@ -226,6 +203,7 @@ public static boolean isSameTeamStatic(String a, String b) {
 // ///////////////////////////////////
 
 public void restartGame() {
+    cancelBotSearch();
     selectedRow = -1;
     selectedCol = -1;
     whiteTurn = true;
@@ -266,33 +244,12 @@ public boolean isOpponentPiece(String piece, boolean whiteKing) {
 
                 
 public boolean isKingInCheck(boolean whiteKing) {
-    Point kingPos = findKingPosition(whiteKing);
-    if (kingPos == null) return false;
-
-    int kr = kingPos.x;
-    int kc = kingPos.y;
-
-    for (int row = 0; row < 8; row++) {
-        for (int col = 0; col < 8; col++) {
-            String piece = coins[row][col];
-            if (piece == null) continue;
-
-            if (isOpponentPiece(piece, whiteKing)) {//checking all opponent piece (means not current player's piece)
-                if (// Check if the piece can attack the king(if it is pown, pown's toRow,toCol should be the same as king's row and column, then it could lead to check), if it is knight, bishop, rook, queen or king, then check their respective move logics)
-                    (piece.equals("♙") || piece.equals("♟")) && isLegalPawnMove(row, col, kr, kc, piece) ||
-                    (piece.equals("♘") || piece.equals("♞")) && isLegalKnightMove(row, col, kr, kc, piece) ||
-                    (piece.equals("♗") || piece.equals("♝")) && isLegalBishopMove(row, col, kr, kc, piece) ||
-                    (piece.equals("♖") || piece.equals("♜")) && isLegalRookMove(row, col, kr, kc, piece) ||
-                    (piece.equals("♕") || piece.equals("♛")) && isLegalQueenMove(row, col, kr, kc, piece) ||
-                    (piece.equals("♔") || piece.equals("♚")) && isLegalKingMove(row, col, kr, kc, piece)
-                ) {
-                    return true;
-                }
-            }
-        }
-    }
+    return isKingInCheck(coins, whiteTurn, whiteKing);
+}
 
-    return false;
+public static boolean isKingInCheck(String[][] coins, boolean whiteTurn, boolean whiteKing) {
+    // Attack-table based check detection on a bitboard copy of the position
+    return new Board(coins, whiteTurn).isKingInCheck(whiteKing);
 }
 // ///////////////////////////////
 
@@ -353,6 +310,7 @@ if (!isCurrentPlayersPiece(piece)) {
             JOptionPane.showMessageDialog(jf, "Game is over! Please start a new game.");
             return;
         }
+        if (botSearch != null) return; // bot is still thinking, the board now stays clickable
         String currentPiece=coins[row][col];
 
         if (selectedRow == -1) {
@@ -464,12 +422,17 @@ if ("♚".equals(coins[row][col])) {
 
             // ////////////moving the selected coin to other cell
             // Move selectedPiece logic
+            MoveEvent moveEvent = new MoveEvent();
+            moveEvent.begin();
+            String captured = coins[row][col];
             coins[row][col] = selectedPiece;
             coins[selectedRow][selectedCol] = null;
 
             cells[row][col].setText(selectedPiece);
             cells[selectedRow][selectedCol].setText("");
             cells[selectedRow][selectedCol].setBorder(BorderFactory.createLineBorder(Color.BLACK));
+            long latency = (System.currentTimeMillis() - clickWhen) * 1_000_000L;
+            commitMoveEvent(moveEvent, new Move(selectedRow, selectedCol, row, col), selectedPiece, captured, false, latency);
 
             boolean opponentKingInCheck = isKingInCheck(!whiteTurn);
 
@@ -485,7 +448,12 @@ if ("♚".equals(coins[row][col])) {
             
             if (!whiteTurn) {
                 
-    SwingUtilities.invokeLater(() -> bot.makeSmartMove());
+    Move bookMove = bot.bookMove(); // opening theory is played at once, without a search
+    if (bookMove != null) {
+        makeBotMove(bookMove);
+    } else {
+        botSearch = bot.makeSmartMoveAsync(); // search runs on the engine thread, UI stays responsive
+    }
 
 }
 
@@ -499,12 +467,41 @@ if ("♚".equals(coins[row][col])) {
         }
     }
 
+    // Called on the event thread when a bot search finishes. Results of searches that were
+    // cancelled in the meantime (restart, window closed) are ignored.
+    public void onBotSearchDone(Future<Move> search, long readyNanos) {
+        if (search != botSearch) return;
+        botSearch = null;
+
+        try {
+            Move move = search.get();
+            if (move != null) makeBotMove(move, readyNanos);
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void cancelBotSearch() {
+        if (botSearch != null) {
+            botSearch.cancel(true);
+            botSearch = null;
+        }
+    }
+
     public void makeBotMove(Move move) {
+    makeBotMove(move, System.nanoTime());
+}
+
+// readyNanos: System.nanoTime() when the bot's move was found, for the MoveEvent latency
+public void makeBotMove(Move move, long readyNanos) {
+    MoveEvent event = new MoveEvent();
+    event.begin();
     int fromRow = move.fromRow;
     int fromCol = move.fromCol;
     int toRow = move.toRow;
     int toCol = move.toCol;
     String piece = coins[fromRow][fromCol];
+    String captured = coins[toRow][toCol];
 
     coins[toRow][toCol] = piece;
     coins[fromRow][fromCol] = null;
@@ -515,6 +512,18 @@ if ("♚".equals(coins[row][col])) {
 
     whiteTurn = true; // Give turn back to player after bot move
     updateTurnLabel();
+    commitMoveEvent(event, move, piece, captured, true, System.nanoTime() - readyNanos);
+}
+
+private static void commitMoveEvent(MoveEvent event, Move move, String piece, String captured, boolean bot, long latency) {
+    event.end();
+    if (!event.shouldCommit()) return;
+    event.move = move.toString();
+    event.piece = piece;
+    event.captured = captured;
+    event.bot = bot;
+    event.uiLatency = latency;
+    event.commit();
 }
 
 
@@ -531,6 +540,7 @@ if ("♚".equals(coins[row][col])) {
 
         label.addMouseListener(new java.awt.event.MouseAdapter() {
             public void mouseClicked(java.awt.event.MouseEvent evt) {
+                clickWhen = evt.getWhen();
                 handleCellClick(row, col);
             }
         });
@@ -637,12 +647,21 @@ jf.add(turnLabel);
         updateTurnLabel();
         try { Thread.sleep(1000); } catch (InterruptedException e) {}
         bot = new ChessBot(this);
+        bot.setOpeningBook(OpeningBook.openDefault());
+        bot.setTablebase(Tablebase.openDefault());
 
 
 
 
         jf.setVisible(true);
         jf.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        jf.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cancelBotSearch();
+                bot.shutdown();
+            }
+        });
     }
 
 }
@@ -1,47 +1,166 @@
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
 //import Move;
 
 public class ChessBot {
     private Chess game; // Reference to the Chess game
 
+    public static final int DEFAULT_HASH_MB = 16;
+    private final TranspositionTable tt;
+
+    // Iterative deepening: makeSmartMove searches depth 1, 2, 3 ... until the budget is spent
+    public static final long DEFAULT_TIME_BUDGET_MS = 1000;
+    public static final int MAX_DEPTH = 64;
+    private long timeBudgetMillis = DEFAULT_TIME_BUDGET_MS;
+    private long deadline = Long.MAX_VALUE; // System.nanoTime() value, MAX_VALUE = no limit
+    private long nodeLimit = Long.MAX_VALUE; // nodes of the root search, checked with the deadline
+    private final AtomicLong searchedNodes = new AtomicLong(); // root search nodes, 1024 at a time
+    private boolean stopped;                // set when the deadline passes mid-iteration
+    private volatile boolean abortRequested; // set by the main searcher to stop a helper
+    private long nodes;
+    private int completedDepth;
+    private int rootScore;
+
+    // Searches started from the UI run here, never on the Swing event thread
+    private final ExecutorService engineExecutor;
+
+    // Lazy SMP: helper searchers share the transposition table and search the same root on
+    // their own threads, slightly out of step with the main search. Only the main result is used.
+    private ChessBot[] helpers = new ChessBot[0];
+    private Future<?>[] helperTasks = new Future<?>[0];
+    private ExecutorService helperExecutor;
+    private int rootRotation; // helpers start their root move list at a different move
+
+    // Root splitting (Young Brothers Wait): the first root move is searched alone to get a
+    // bound, then the remaining root moves are searched in parallel on a fork/join pool.
+    // With no pool the siblings are searched one after another, which is deterministic.
+    private ForkJoinPool rootPool;
+    private final ConcurrentLinkedQueue<ChessBot> idleSplitWorkers = new ConcurrentLinkedQueue<>();
+    private ChessBot parent;     // set on split workers, whose search stops with the parent's
+    private RootSplit rootSplit; // split a worker is searching a sibling of, null otherwise
+    private Thread searchThread; // thread running this searcher's current root search
+
+    // Quiescence: captures that cannot lift the score to alpha even with this much extra are skipped
+    private static final int DELTA_MARGIN = 2 * Board.PIECE_VALUES[Piece.PAWN];
+
+    // Adaptive pruning. Null move: let the opponent move twice with a reduced search; if that
+    // still fails high, cut the node. With little material left passing can be the better move
+    // (zugzwang), so there the cut is only taken after a reduced search of the real moves agrees.
+    // Late move reductions: quiet moves late in the order are searched a ply or two shallower
+    // with a null window, and again at full depth only when they beat the bound.
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private static final int PRUNING_MIN_DEPTH = 3;
+    private static final int ZUGZWANG_MATERIAL = Board.PIECE_VALUES[Piece.ROOK];
+    private static final int LMR_FULL_DEPTH_MOVES = 3; // never reduced: TT move, best captures
+
+    // Aspiration windows: from this depth on an iteration is first searched with a narrow window
+    // around the previous score. A side that fails is widened by a growing step, and opened
+    // completely once the step passes the limit.
+    private static final int ASPIRATION_MIN_DEPTH = 4;
+    private static final int ASPIRATION_WINDOW = Board.PIECE_VALUES[Piece.PAWN] / 4;
+    private static final int ASPIRATION_LIMIT = 4 * Board.PIECE_VALUES[Piece.PAWN];
+
+    // Principal variation: pvTable[ply][ply..pvLength[ply]) is the best line found from ply on
+    private final int[][] pvTable = new int[Board.MAX_PLY][Board.MAX_PLY];
+    private final int[] pvLength = new int[Board.MAX_PLY];
+    private final int[] rootPv = new int[Board.MAX_PLY]; // last finished iteration
+    private int rootPvLength;
+    private final int[] iterationPv = new int[Board.MAX_PLY]; // iteration in progress
+    private int iterationPvLength;
+
+    // Telemetry: every searcher counts into its own fields, summed into a SearchStats at the end
+    private long qnodes;
+    private long ttProbes;
+    private long ttHits;
+    private SearchStats lastStats = new SearchStats();
+    private boolean logStats; // print the stats to standard output after each search
+    private int researches;   // aspiration re-searches of the current iteration
+
+    private OpeningBook book; // null: every move is searched
+    private final int[] bookMoves = new int[MoveGenerator.MAX_MOVES]; // book probe scratch
+
+    // Endgame tables, shared by all threads: a covered root position is not searched at all and a
+    // covered node returns the table's result. Null without tables.
+    private Tablebase tablebase;
+    private long tbHits;
+    private final int[] tbCodes = new int[Tablebase.MAX_PIECES]; // probe scratch, per searcher
+    private final int[] tbSquares = new int[Tablebase.MAX_PIECES];
+    private final int[] tbSlots = new int[Tablebase.MAX_PIECES];
+
+    private IterationListener iterationListener;
+
+    // Engine without a game window, e.g. for Uci: only the getBestMove methods are used
+    public ChessBot() {
+        this((Chess) null);
+    }
+
     public ChessBot(Chess game) {
         this.game = game;
+        this.tt = new TranspositionTable(DEFAULT_HASH_MB);
+        this.engineExecutor = Executors.newSingleThreadExecutor(daemonThreads("chess-engine"));
+    }
+
+    // Helper searcher sharing the main searcher's table
+    private ChessBot(TranspositionTable sharedTable) {
+        this.tt = sharedTable;
+        this.engineExecutor = null;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    // Told about every finished iteration of a timed search, on the searching thread
+    public interface IterationListener {
+        void iterationFinished(int depth, int score, long nodes, long elapsedNanos, List<Move> principalVariation);
+    }
+
+    public void setIterationListener(IterationListener listener) {
+        iterationListener = listener;
+    }
+
+    // Book move for the bot in the game position, or null when the position is not in the book
+    public Move bookMove() {
+        if (book == null) return null;
+        int move = book.probe(new Board(game.coins, false), ThreadLocalRandom.current(), bookMoves); // black bot turn
+        return move == Move.NONE ? null : Move.of(move);
     }
 
     public void makeRandomMove() {
-        ArrayList<Move> legalMoves = new ArrayList<>();
-        String[][] coins = game.coins;
-
-        for (int fromRow = 0; fromRow < 8; fromRow++) {
-            for (int fromCol = 0; fromCol < 8; fromCol++) {
-                String piece = coins[fromRow][fromCol];
-                if (piece == null || !game.isBlack(piece)) continue;
-
-                for (int toRow = 0; toRow < 8; toRow++) {
-                    for (int toCol = 0; toCol < 8; toCol++) {
-                        boolean isLegal = false;
-                        if (piece.equals("♟") && game.isLegalPawnMove(fromRow, fromCol, toRow, toCol, piece)) {
-                            isLegal = true;
-                        } else if (piece.equals("♞") && game.isLegalKnightMove(fromRow, fromCol, toRow, toCol, piece)) {
-                            isLegal = true;
-                        } else if (piece.equals("♝") && game.isLegalBishopMove(fromRow, fromCol, toRow, toCol, piece)) {
-                            isLegal = true;
-                        } else if (piece.equals("♜") && game.isLegalRookMove(fromRow, fromCol, toRow, toCol, piece)) {
-                            isLegal = true;
-                        } else if (piece.equals("♛") && game.isLegalQueenMove(fromRow, fromCol, toRow, toCol, piece)) {
-                            isLegal = true;
-                        } else if (piece.equals("♚") && game.isLegalKingMove(fromRow, fromCol, toRow, toCol, piece)) {
-                            isLegal = true;
-                        }
-
-                        if (isLegal) {
-                            legalMoves.add(new Move(fromRow, fromCol, toRow, toCol));
-                        }
-                    }
-                }
-            }
-        }
+        Board board = new Board(game.coins, false); // black bot turn
+        ArrayList<Move> legalMoves = board.getAllLegalMoves();
 
         if (!legalMoves.isEmpty()) {
             Move chosen = legalMoves.get(new Random().nextInt(legalMoves.size()));
@@ -51,74 +170,887 @@ public class ChessBot {
     
 
     // ////////////////////////////////////
-    public Move getBestMove(Board board, int depth, boolean maximizingPlayer) {
-    ArrayList<Move> legalMoves = board.getAllLegalMoves();
+    // Per-ply buffers of packed moves (see Move.encode), owned by the search so that walking
+    // the tree allocates nothing. Ply 0 is the root.
+    private final int[][] moveBuffers = new int[Board.MAX_PLY][MoveGenerator.MAX_MOVES];
 
-        legalMoves.sort((a, b) -> {
-    String capturedA = board.getPieceAt(a.toRow, a.toCol);
-    String capturedB = board.getPieceAt(b.toRow, b.toCol);
-    return board.pieceValue(capturedB) - board.pieceValue(capturedA);
-});
+    // Killer and history tables are per searcher, like the move buffers
+    private final MoveOrderer orderer = new MoveOrderer();
+    private final PawnHashTable pawnTable = new PawnHashTable(PawnHashTable.DEFAULT_ENTRIES);
 
+    private static int sideToMove(Board board) {
+        return board.isWhiteTurn ? Piece.WHITE : Piece.BLACK;
+    }
 
-    
-    Move bestMove = null;
-    int bestScore = maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+    // Memory used by the transposition table; resizing drops what it has learned
+    public void setHashSize(int megabytes) {
+        tt.resize(megabytes);
+    }
 
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
 
-    
-    for (Move move : legalMoves) {
-        if (board.isRepetitive(move)) continue;
-        
-        Board simulated = board.makeMove(move);
-        int score = minimax(simulated, depth - 1, Integer.MIN_VALUE, Integer.MAX_VALUE, !maximizingPlayer);
+    // Total search threads for timed searches, 1 = main thread only. Must not be changed while
+    // a search is running.
+    public void setThreads(int threads) {
+        if (helperExecutor != null) helperExecutor.shutdownNow();
+        helpers = new ChessBot[Math.max(0, threads - 1)];
+        helperTasks = new Future<?>[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new ChessBot(tt);
+            helpers[i].rootRotation = i + 1;
+        }
+        helperExecutor = helpers.length == 0 ? null
+                : Executors.newFixedThreadPool(helpers.length, daemonThreads("chess-helper"));
+    }
 
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    // Threads used to split the root move list; 1 or less searches the siblings serially
+    // (deterministic, for tests). Must not be changed while a search is running.
+    public void setRootSplitThreads(int threads) {
+        if (rootPool != null) rootPool.shutdownNow();
+        idleSplitWorkers.clear();
+        rootPool = null;
+        if (threads <= 1) return;
+
+        rootPool = new ForkJoinPool(threads);
+        for (int i = 0; i < threads; i++) {
+            ChessBot worker = new ChessBot(tt);
+            worker.parent = this;
+            idleSplitWorkers.add(worker);
+        }
+    }
+
+    public int getRootSplitThreads() {
+        return rootPool == null ? 1 : rootPool.getParallelism();
+    }
+
+    public void setTimeBudget(long millis) {
+        timeBudgetMillis = millis;
+    }
+
+    public long getTimeBudget() {
+        return timeBudgetMillis;
+    }
+
+    // Switches for benchmarking and debugging; helpers and split workers follow the main searcher
+    public void setNullMovePruning(boolean enabled) {
+        nullMovePruning = enabled;
+    }
+
+    public boolean isNullMovePruning() {
+        return nullMovePruning;
+    }
+
+    public void setLateMoveReductions(boolean enabled) {
+        lateMoveReductions = enabled;
+    }
+
+    public boolean isLateMoveReductions() {
+        return lateMoveReductions;
+    }
+
+    // Nodes visited by this searcher (not its helpers) since the last search started
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Cutoff counters of the main searcher, e.g. getMoveOrderer().getFirstMoveCutoffRate()
+    public MoveOrderer getMoveOrderer() {
+        return orderer;
+    }
+
+    // Nodes, cutoffs, timings and cache hits of the last finished search, all threads included
+    public SearchStats getSearchStats() {
+        return lastStats;
+    }
+
+    public void setLogStats(boolean enabled) {
+        logStats = enabled;
+    }
+
+    public boolean isLogStats() {
+        return logStats;
+    }
+
+    // Depth and score of the last fully searched iteration
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public int getLastScore() {
+        return rootScore;
+    }
+
+    // Expected line of play from the last fully searched iteration, starting with the best move
+    public List<Move> getPrincipalVariation() {
+        List<Move> line = new ArrayList<>();
+        for (int i = 0; i < rootPvLength; i++) {
+            line.add(Move.of(rootPv[i]));
+        }
+        return line;
+    }
+
+    // Polled every 1024 nodes. Depth 1 is never cut short by the clock or the node limit, so
+    // there is always a move to play; an interrupt (a cancelled background search, or a UCI
+    // stop) stops it at any depth.
+    // Split workers count their nodes into the main searcher's total, so the node limit covers
+    // the whole root search, and also stop once another sibling has failed the root window.
+    private boolean timeUp() {
+        if ((++nodes & 1023) == 0) {
+            long searched = (parent != null ? parent : this).searchedNodes.addAndGet(1024);
+            if (abortRequested || Thread.currentThread().isInterrupted()
+                    || (parent != null && parent.searchThread.isInterrupted())
+                    || (rootSplit != null && rootSplit.failed())
+                    || (completedDepth > 0 && (System.nanoTime() >= deadline || searched >= nodeLimit))) {
+                stopped = true;
+            }
+        }
+        return stopped;
+    }
+
+    // Rotates moves[0..count) left by k, in place
+    private static void rotate(int[] moves, int count, int k) {
+        k %= count;
+        if (k == 0) return;
+        reverse(moves, 0, k);
+        reverse(moves, k, count);
+        reverse(moves, 0, count);
+    }
+
+    private static void reverse(int[] moves, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int t = moves[i];
+            moves[i] = moves[j];
+            moves[j] = t;
+        }
+    }
+
+    // Moves the given move (if it was generated) to the front of the list
+    private static void moveToFront(int[] moves, int count, int move) {
+        if (move == Move.NONE) return;
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    public Move getBestMove(Board board, int depth, boolean maximizingPlayer) {
+    tt.newSearch();
+    orderer.newSearch();
+    resetSearchCounters();
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    long start = System.nanoTime();
+    deadline = Long.MAX_VALUE;
+    stopped = false;
+    completedDepth = 0;
+    rootPvLength = 0;
+    SearchStats stats = new SearchStats();
+    int tablebaseMove = tablebase == null ? Move.NONE : tablebase.bestMove(board);
+    if (tablebaseMove != Move.NONE) return playTablebaseMove(board, tablebaseMove, stats, event, start, false);
+    int bestMove = searchRoot(board, depth, maximizingPlayer, Move.NONE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    completedDepth = depth;
+    if (bestMove != Move.NONE) commitIterationPv();
+    stats.depthNanos[depth] = System.nanoTime() - start;
+    stats.depthNodes[depth] = rootNodes();
+    finishStats(stats, start, false);
+    commitSearchEvent(event, board, bestMove, stats, false);
+    return bestMove == Move.NONE ? null : Move.of(bestMove);
+}
+
+// Searches depth 1, 2, 3 ... until the time budget runs out and returns the best move of the
+// last iteration that finished. Each iteration starts with the previous iteration's best move.
+public Move getBestMoveTimed(Board board, long budgetMillis) {
+    return getBestMoveTimed(board, budgetMillis, MAX_DEPTH, Long.MAX_VALUE);
+}
+
+// The same, also stopping after maxDepth or once the main thread has searched about maxNodes
+// nodes. A budget of Long.MAX_VALUE means no time limit.
+public Move getBestMoveTimed(Board board, long budgetMillis, int maxDepth, long maxNodes) {
+    tt.newSearch();
+    orderer.newSearch();
+    resetSearchCounters();
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    long start = System.nanoTime();
+    deadline = budgetMillis == Long.MAX_VALUE ? Long.MAX_VALUE : start + budgetMillis * 1_000_000L;
+    stopped = false;
+    completedDepth = 0;
+    rootPvLength = 0;
+    SearchStats stats = new SearchStats();
+    int tablebaseMove = tablebase == null ? Move.NONE : tablebase.bestMove(board);
+    if (tablebaseMove != Move.NONE) return playTablebaseMove(board, tablebaseMove, stats, event, start, true);
+    nodeLimit = maxNodes;
+    startHelpers(board);
+
+    int bestMove = Move.NONE;
+    try {
+        long iterationStart = start, nodesBefore = 0;
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            IterationEvent iteration = new IterationEvent();
+            iteration.begin();
+            int move = searchAspiration(board, depth, board.isWhiteTurn, bestMove);
+            iteration.end();
+            if (iteration.shouldCommit()) {
+                iteration.depth = depth;
+                iteration.completed = !stopped;
+                iteration.score = rootScore;
+                iteration.bestMove = stopped || move == Move.NONE ? null : Move.of(move).toString();
+                iteration.nodes = rootNodes() - nodesBefore;
+                iteration.researches = researches;
+                iteration.commit();
+            }
+            if (stopped) break; // unfinished iteration, keep the previous result
 
-        if (maximizingPlayer && score > bestScore) {
-            bestScore = score;
             bestMove = move;
-        } else if (!maximizingPlayer && score < bestScore) {
+            completedDepth = depth;
+            commitIterationPv();
+            long now = System.nanoTime(), nodesNow = rootNodes();
+            stats.depthNanos[depth] = now - iterationStart;
+            stats.depthNodes[depth] = nodesNow - nodesBefore;
+            iterationStart = now;
+            nodesBefore = nodesNow;
+            if (iterationListener != null) {
+                iterationListener.iterationFinished(depth, rootScore, nodesNow, now - start, getPrincipalVariation());
+            }
+            if (move == Move.NONE || now >= deadline) break;
+        }
+    } finally {
+        stopHelpers();
+        deadline = Long.MAX_VALUE;
+        nodeLimit = Long.MAX_VALUE;
+    }
+    finishStats(stats, start, true);
+    commitSearchEvent(event, board, bestMove, stats, true);
+    return bestMove == Move.NONE ? null : Move.of(bestMove);
+}
+
+// Root position covered by the tablebases: the table's best move, without a search
+private Move playTablebaseMove(Board board, int move, SearchStats stats, SearchEvent event, long start, boolean timed) {
+    tbHits++;
+    deadline = Long.MAX_VALUE;
+    completedDepth = 0;
+    rootScore = Tablebase.score(tablebase.probe(board), 0, board.isWhiteTurn);
+    rootPv[0] = move;
+    rootPvLength = 1;
+    finishStats(stats, start, false);
+    commitSearchEvent(event, board, move, stats, timed);
+    return Move.of(move);
+}
+
+private void resetSearchCounters() {
+    resetCounters();
+    searchedNodes.set(0);
+    for (ChessBot helper : helpers) {
+        helper.resetCounters();
+    }
+    for (ChessBot worker : idleSplitWorkers) {
+        worker.resetCounters();
+    }
+}
+
+private void resetCounters() {
+    nodes = 0;
+    qnodes = 0;
+    ttProbes = 0;
+    ttHits = 0;
+    tbHits = 0;
+    orderer.resetCounters();
+    pawnTable.resetCounters();
+}
+
+// Nodes of this searcher and its root split workers, which are all idle between iterations
+private long rootNodes() {
+    long total = nodes;
+    for (ChessBot worker : idleSplitWorkers) {
+        total += worker.nodes;
+    }
+    return total;
+}
+
+// Sums the counters of every thread into stats; helpers have stopped and split workers are
+// idle by now, so their fields are read after their last write
+private void finishStats(SearchStats stats, long start, boolean withHelpers) {
+    stats.elapsedNanos = System.nanoTime() - start;
+    stats.depth = completedDepth;
+    stats.threads = 1 + (withHelpers ? helpers.length : 0) + (rootPool == null ? 0 : rootPool.getParallelism());
+    addCounters(stats);
+    for (ChessBot helper : helpers) {
+        helper.addCounters(stats);
+    }
+    for (ChessBot worker : idleSplitWorkers) {
+        worker.addCounters(stats);
+    }
+    lastStats = stats;
+    if (logStats) System.out.println(stats);
+}
+
+// The FEN is only built when a recording wants the event
+private void commitSearchEvent(SearchEvent event, Board board, int bestMove, SearchStats stats, boolean timed) {
+    event.end();
+    if (!event.shouldCommit()) return;
+    event.fen = board.toFen();
+    event.depth = completedDepth;
+    event.score = rootScore;
+    event.bestMove = bestMove == Move.NONE ? null : Move.of(bestMove).toString();
+    event.nodes = stats.nodes;
+    event.threads = stats.threads;
+    event.timed = timed;
+    event.commit();
+}
+
+private void addCounters(SearchStats stats) {
+    stats.nodes += nodes;
+    stats.qnodes += qnodes;
+    stats.cutoffs += orderer.getCutoffs();
+    stats.firstMoveCutoffs += orderer.getFirstMoveCutoffs();
+    stats.ttProbes += ttProbes;
+    stats.ttHits += ttHits;
+    stats.pawnProbes += pawnTable.getProbes();
+    stats.pawnHits += pawnTable.getHits();
+    stats.tbHits += tbHits;
+}
+
+private void startHelpers(Board board) {
+    for (int i = 0; i < helpers.length; i++) {
+        ChessBot helper = helpers[i];
+        Board copy = new Board(board);
+        helper.abortRequested = false;
+        helper.nullMovePruning = nullMovePruning;
+        helper.lateMoveReductions = lateMoveReductions;
+        helper.tablebase = tablebase;
+        helperTasks[i] = helperExecutor.submit(() -> helper.helperSearch(copy));
+    }
+}
+
+// Waits for every helper even when interrupted (a UCI stop or a cancelled GUI search): a helper
+// still running would otherwise be restarted by the next startHelpers() while its old search
+// goes on. The abort flag makes the wait short; the interrupt is restored afterwards.
+private void stopHelpers() {
+    for (ChessBot helper : helpers) {
+        helper.abortRequested = true;
+    }
+    boolean interrupted = false;
+    for (Future<?> task : helperTasks) {
+        while (task != null) {
+            try {
+                task.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                break;
+            }
+        }
+    }
+    if (interrupted) Thread.currentThread().interrupt();
+}
+
+// Helper loop: odd helpers search one ply ahead of the main thread, and every helper starts
+// its root list at a different move, so the threads fill the table with different subtrees.
+private void helperSearch(Board board) {
+    orderer.newSearch();
+    resetCounters();
+    deadline = Long.MAX_VALUE;
+    stopped = false;
+    completedDepth = 0;
+
+    int bestMove = Move.NONE;
+    for (int depth = 1 + (rootRotation & 1); depth <= MAX_DEPTH; depth++) {
+        int move = searchAspiration(board, depth, board.isWhiteTurn, bestMove);
+        if (stopped || move == Move.NONE) break;
+        bestMove = move;
+        completedDepth = depth;
+    }
+}
+
+// One iteration of the timed search. Iterations from ASPIRATION_MIN_DEPTH on start with a
+// narrow window around the previous score and widen the side that fails until the score fits.
+private int searchAspiration(Board board, int depth, boolean maximizingPlayer, int firstMove) {
+    researches = 0;
+    if (depth < ASPIRATION_MIN_DEPTH) {
+        return searchRoot(board, depth, maximizingPlayer, firstMove, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    int previous = rootScore;
+    int delta = ASPIRATION_WINDOW;
+    int alpha = previous - delta, beta = previous + delta;
+    while (true) {
+        int move = searchRoot(board, depth, maximizingPlayer, firstMove, alpha, beta);
+        if (stopped) {
+            rootScore = previous; // a failed window only left a bound behind
+            return Move.NONE;
+        }
+        if (move == Move.NONE) return move;
+        if (rootScore > alpha && rootScore < beta) return move;
+
+        delta *= 2;
+        researches++;
+        if (rootScore <= alpha) {
+            alpha = delta > ASPIRATION_LIMIT ? Integer.MIN_VALUE : rootScore - delta;
+        } else {
+            beta = delta > ASPIRATION_LIMIT ? Integer.MAX_VALUE : rootScore + delta;
+            firstMove = move; // the move that failed high leads the re-search
+        }
+    }
+}
+
+// Returns the best packed move, or Move.NONE when there is none or the search was stopped.
+// Principal variation search: the first move gets the whole (alpha, beta) window and the rest a
+// null window on the best score so far, with a full re-search for a move that beats it. When
+// the window fails, rootScore is left at or outside the failing side.
+private int searchRoot(Board board, int depth, boolean maximizingPlayer, int firstMove, int alpha, int beta) {
+    int[] moves = moveBuffers[0];
+    int count = MoveGenerator.generate(board, sideToMove(board), MoveGenerator.ALL_MOVES, moves, 0);
+
+    orderer.score(moves, count, firstMove, 0);
+    orderer.sort(moves, count, 0);
+    if (rootRotation > 0 && count > 1) rotate(moves, count, rootRotation);
+    moveToFront(moves, count, firstMove);
+
+    searchThread = Thread.currentThread();
+
+    // the eldest brother is searched alone with the full window to establish a bound
+    int first = 0;
+    while (first < count && board.isRepetitive(Move.of(moves[first]))) first++;
+    if (first == count) return Move.NONE;
+
+    int bestScore = searchRootMove(board, moves[first], depth, maximizingPlayer, alpha, beta);
+    if (stopped) return Move.NONE;
+    int bestMove = moves[first];
+    setIterationPv(bestMove, pvTable[1], pvLength[1]);
+    boolean cutoff = maximizingPlayer ? bestScore >= beta : bestScore <= alpha;
+
+    if (!cutoff && rootPool != null && count - first > 1) {
+        RootSplit split = new RootSplit(bestScore, bestMove, maximizingPlayer, alpha, beta);
+        ArrayList<SiblingSearch> siblings = new ArrayList<>();
+        for (int i = first + 1; i < count; i++) {
+            if (!board.isRepetitive(Move.of(moves[i]))) {
+                siblings.add(new SiblingSearch(board, moves[i], depth, split));
+            }
+        }
+        rootPool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(siblings);
+            }
+        });
+        if (split.stopped) stopped = true;
+        bestScore = split.bestScore;
+        bestMove = split.bestMove;
+        if (split.pvLength > 0) setIterationPv(bestMove, split.pv, split.pvLength);
+    } else if (!cutoff) {
+        for (int i = first + 1; i < count; i++) {
+            int move = moves[i];
+            if (board.isRepetitive(Move.of(move))) continue;
+
+            int bound = maximizingPlayer ? Math.max(alpha, bestScore) : Math.min(beta, bestScore);
+            int score = searchSibling(board, move, depth, maximizingPlayer, bound, alpha, beta);
+            if (stopped) return Move.NONE;
+
+            if (maximizingPlayer ? score > bound : score < bound) {
+                bestScore = score;
+                bestMove = move;
+                setIterationPv(move, pvTable[1], pvLength[1]);
+                if (maximizingPlayer ? score >= beta : score <= alpha) break;
+            }
+        }
+    }
+    if (stopped) return Move.NONE;
+
+    int bound = bestScore <= alpha ? TranspositionTable.UPPER
+            : bestScore >= beta ? TranspositionTable.LOWER
+            : TranspositionTable.EXACT;
+    tt.store(board.zobristKey, depth, bestScore, bound, bestMove);
+    rootScore = bestScore;
+    return bestMove;
+}
+
+private int searchRootMove(Board board, int move, int depth, boolean maximizingPlayer, int alpha, int beta) {
+    board.make(move);
+    int score = minimax(board, depth - 1, alpha, beta, !maximizingPlayer, 1, true);
+    board.unmake(move);
+    return score;
+}
+
+// Searches a later root move with a null window on bound, the best score so far. A result that
+// does not beat bound is only a bound itself and never replaces the current best move; one that
+// does is searched again with the window (bound, beta) or (alpha, bound) to get its real score.
+// A split worker takes the re-search window from the split's bound, which another sibling may
+// have improved in the meantime.
+private int searchSibling(Board board, int move, int depth, boolean maximizingPlayer, int bound, int alpha, int beta) {
+    board.make(move);
+    int score = maximizingPlayer
+            ? minimax(board, depth - 1, bound, bound + 1, false, 1, true)
+            : minimax(board, depth - 1, bound - 1, bound, true, 1, true);
+    if (!stopped && (maximizingPlayer ? score > bound && score < beta : score < bound && score > alpha)) {
+        if (rootSplit != null) {
+            int shared = rootSplit.bound.get();
+            bound = maximizingPlayer ? Math.max(bound, shared) : Math.min(bound, shared);
+        }
+        if (maximizingPlayer ? bound < beta : bound > alpha) { // otherwise the split has failed
+            score = maximizingPlayer
+                    ? minimax(board, depth - 1, bound, beta, false, 1, true)
+                    : minimax(board, depth - 1, alpha, bound, true, 1, true);
+        }
+    }
+    board.unmake(move);
+    return score;
+}
+
+private void setIterationPv(int move, int[] line, int length) {
+    iterationPv[0] = move;
+    System.arraycopy(line, 1, iterationPv, 1, length - 1);
+    iterationPvLength = length;
+}
+
+// Reports the line of an iteration that finished; a stopped one never replaces it
+private void commitIterationPv() {
+    System.arraycopy(iterationPv, 0, rootPv, 0, iterationPvLength);
+    rootPvLength = iterationPvLength;
+}
+
+// Appends the child's line to move as the best line from ply
+private void updatePv(int ply, int move) {
+    int[] line = pvTable[ply];
+    line[ply] = move;
+    int childLength = pvLength[ply + 1];
+    System.arraycopy(pvTable[ply + 1], ply + 1, line, ply + 1, childLength - ply - 1);
+    pvLength[ply] = childLength;
+}
+
+// Best result of a parallel root split. The bound is read by workers before each sibling and
+// again before a re-search, so a better score found by one worker narrows the windows of the
+// other siblings; once it fails the root window, the running siblings stop at their next poll.
+private static final class RootSplit {
+    final AtomicInteger bound;
+    final boolean maximizingPlayer;
+    final int alpha, beta; // root window
+    int bestScore;
+    int bestMove;
+    final int[] pv = new int[Board.MAX_PLY]; // line of bestMove, when a sibling replaced it
+    int pvLength;
+    volatile boolean stopped;
+
+    RootSplit(int bestScore, int bestMove, boolean maximizingPlayer, int alpha, int beta) {
+        this.bound = new AtomicInteger(maximizingPlayer ? Math.max(alpha, bestScore) : Math.min(beta, bestScore));
+        this.bestScore = bestScore;
+        this.bestMove = bestMove;
+        this.maximizingPlayer = maximizingPlayer;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    boolean failed() {
+        return maximizingPlayer ? bound.get() >= beta : bound.get() <= alpha;
+    }
+
+    synchronized void offer(int score, int move, int[] line, int length) {
+        if (maximizingPlayer ? score > bestScore : score < bestScore) {
             bestScore = score;
             bestMove = move;
+            System.arraycopy(line, 0, pv, 0, length);
+            pvLength = length;
+            bound.set(score);
         }
     }
+}
 
-    return bestMove;
+@SuppressWarnings("serial") // never serialized
+private final class SiblingSearch extends RecursiveAction {
+    private final Board root;
+    private final int move;
+    private final int depth;
+    private final RootSplit split;
+
+    SiblingSearch(Board root, int move, int depth, RootSplit split) {
+        this.root = root;
+        this.move = move;
+        this.depth = depth;
+        this.split = split;
+    }
+
+    @Override
+    protected void compute() {
+        if (split.stopped || split.failed()) return;
+
+        ChessBot worker = idleSplitWorkers.poll();
+        if (worker == null) {
+            worker = new ChessBot(tt);
+            worker.parent = ChessBot.this;
+        }
+        try {
+            worker.deadline = deadline;
+            worker.nodeLimit = nodeLimit;
+            worker.completedDepth = completedDepth;
+            worker.stopped = false;
+            worker.nullMovePruning = nullMovePruning;
+            worker.lateMoveReductions = lateMoveReductions;
+            worker.tablebase = tablebase;
+            worker.rootSplit = split;
+
+            Board board = new Board(root); // each worker searches its own copy
+            int bound = split.bound.get();
+            int score = worker.searchSibling(board, move, depth, split.maximizingPlayer, bound, split.alpha, split.beta);
+            if (worker.stopped) {
+                if (!split.failed()) split.stopped = true; // cut off by a sibling, not by the clock
+            } else if (split.maximizingPlayer ? score > bound : score < bound) {
+                split.offer(score, move, worker.pvTable[1], worker.pvLength[1]);
+            }
+        } finally {
+            worker.rootSplit = null;
+            idleSplitWorkers.offer(worker);
+        }
+    }
 }
 
 public int minimax(Board board, int depth, int alpha, int beta, boolean maximizingPlayer) {
-    if (depth == 0) return board.evaluate();
+    return minimax(board, depth, alpha, beta, maximizingPlayer, 0, true);
+}
+
+// allowNull is false right after a null move, so two passes never follow each other
+private int minimax(Board board, int depth, int alpha, int beta, boolean maximizingPlayer, int ply, boolean allowNull) {
+    if (timeUp()) return 0; // result is thrown away by the root
+    pvLength[ply] = ply;
+    int tablebaseScore = probeTablebase(board, ply);
+    if (tablebaseScore != NO_TABLEBASE_SCORE) return tablebaseScore;
+    if (depth == 0) return quiescence(board, alpha, beta, maximizingPlayer, ply);
 
-    ArrayList<Move> legalMoves = board.getAllLegalMoves();
-    if (legalMoves.isEmpty()) return board.evaluate();
+    // a deep enough stored result answers the node or narrows its window
+    long entry = tt.probe(board.zobristKey);
+    int ttMove = Move.NONE;
+    ttProbes++;
+    if (entry != 0) {
+        ttHits++;
+        ttMove = TranspositionTable.move(entry);
+        if (TranspositionTable.depth(entry) >= depth) {
+            int ttScore = Tablebase.fromTableScore(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT) return ttScore;
+            if (bound == TranspositionTable.LOWER) alpha = Math.max(alpha, ttScore);
+            else beta = Math.min(beta, ttScore);
+            if (beta <= alpha) return ttScore;
+        }
+    }
+
+    boolean inCheck = depth >= PRUNING_MIN_DEPTH && board.isKingInCheck(board.isWhiteTurn);
+
+    // the bound must be finite, otherwise a null-window search around it means nothing
+    if (nullMovePruning && allowNull && depth >= PRUNING_MIN_DEPTH && !inCheck
+            && (maximizingPlayer ? beta != Integer.MAX_VALUE : alpha != Integer.MIN_VALUE)) {
+        int r = depth > 6 ? 3 : 2;
+        board.makeNull();
+        int nullScore = maximizingPlayer
+                ? minimax(board, depth - 1 - r, beta - 1, beta, false, ply + 1, false)
+                : minimax(board, depth - 1 - r, alpha, alpha + 1, true, ply + 1, false);
+        board.unmakeNull();
+        if (stopped) return 0;
+
+        if (maximizingPlayer ? nullScore >= beta : nullScore <= alpha) {
+            if (board.nonPawnMaterial(sideToMove(board)) > ZUGZWANG_MATERIAL) return nullScore;
+
+            int verified = maximizingPlayer
+                    ? minimax(board, depth - r, beta - 1, beta, true, ply, false)
+                    : minimax(board, depth - r, alpha, alpha + 1, false, ply, false);
+            if (stopped) return 0;
+            if (maximizingPlayer ? verified >= beta : verified <= alpha) return verified;
+            pvLength[ply] = ply;
+        }
+    }
+
+    int[] moves = moveBuffers[ply];
+    int count = MoveGenerator.generate(board, sideToMove(board), MoveGenerator.ALL_MOVES, moves, 0);
+    if (count == 0) return board.evaluate(pawnTable);
+    orderer.score(moves, count, ttMove, ply);
+
+    int searchedAlpha = alpha, searchedBeta = beta;
+    int bestMove = Move.NONE;
+    int bestEval;
 
     if (maximizingPlayer) {
         int maxEval = Integer.MIN_VALUE;
-        for (Move move : legalMoves) {
-            Board simulated = board.makeMove(move);
-            int eval = minimax(simulated, depth - 1, alpha, beta, false);
-            maxEval = Math.max(maxEval, eval);
+        for (int i = 0; i < count; i++) {
+            int move = orderer.next(moves, i, count, ply);
+            board.make(move);
+            int eval;
+            if (i == 0) {
+                eval = minimax(board, depth - 1, alpha, beta, false, ply + 1, true);
+            } else {
+                // later moves only have to show they are no better than alpha: null window first
+                // (reduced when late and quiet), full window only for a move that beats alpha
+                int reduction = reduction(board, move, i, depth, ply, inCheck);
+                eval = minimax(board, depth - 1 - reduction, alpha, alpha + 1, false, ply + 1, true);
+                if (!stopped && eval > alpha && reduction > 0) eval = minimax(board, depth - 1, alpha, alpha + 1, false, ply + 1, true);
+                if (!stopped && eval > alpha && eval < beta) eval = minimax(board, depth - 1, alpha, beta, false, ply + 1, true);
+            }
+            board.unmake(move);
+            if (stopped) return 0;
+            if (eval > maxEval) {
+                maxEval = eval;
+                bestMove = move;
+            }
+            if (eval > alpha) updatePv(ply, move);
             alpha = Math.max(alpha, eval);
-            if (beta <= alpha) break; // β cut-off
+            if (beta <= alpha) { // β cut-off
+                orderer.recordCutoff(move, i, depth, ply);
+                break;
+            }
         }
-        return maxEval;
+        bestEval = maxEval;
     } else {
         int minEval = Integer.MAX_VALUE;
-        for (Move move : legalMoves) {
-            Board simulated = board.makeMove(move);
-            int eval = minimax(simulated, depth - 1, alpha, beta, true);
-            minEval = Math.min(minEval, eval);
+        for (int i = 0; i < count; i++) {
+            int move = orderer.next(moves, i, count, ply);
+            board.make(move);
+            int eval;
+            if (i == 0) {
+                eval = minimax(board, depth - 1, alpha, beta, true, ply + 1, true);
+            } else {
+                int reduction = reduction(board, move, i, depth, ply, inCheck);
+                eval = minimax(board, depth - 1 - reduction, beta - 1, beta, true, ply + 1, true);
+                if (!stopped && eval < beta && reduction > 0) eval = minimax(board, depth - 1, beta - 1, beta, true, ply + 1, true);
+                if (!stopped && eval < beta && eval > alpha) eval = minimax(board, depth - 1, alpha, beta, true, ply + 1, true);
+            }
+            board.unmake(move);
+            if (stopped) return 0;
+            if (eval < minEval) {
+                minEval = eval;
+                bestMove = move;
+            }
+            if (eval < beta) updatePv(ply, move);
             beta = Math.min(beta, eval);
-            if (beta <= alpha) break; // α cut-off
+            if (beta <= alpha) { // α cut-off
+                orderer.recordCutoff(move, i, depth, ply);
+                break;
+            }
         }
-        return minEval;
+        bestEval = minEval;
     }
+
+    int bound = bestEval <= searchedAlpha ? TranspositionTable.UPPER
+            : bestEval >= searchedBeta ? TranspositionTable.LOWER
+            : TranspositionTable.EXACT;
+    tt.store(board.zobristKey, depth, Tablebase.toTableScore(bestEval, ply), bound, bestMove);
+    return bestEval;
+}
+
+private static final int NO_TABLEBASE_SCORE = Integer.MIN_VALUE;
+
+// Exact score from the tablebases once few enough pieces are left, else NO_TABLEBASE_SCORE
+private int probeTablebase(Board board, int ply) {
+    if (tablebase == null || Long.bitCount(board.occupied) > Tablebase.MAX_PIECES) return NO_TABLEBASE_SCORE;
+    int result = tablebase.probe(board, tbCodes, tbSquares, tbSlots);
+    if (result == Tablebase.UNKNOWN) return NO_TABLEBASE_SCORE;
+    tbHits++;
+    return Tablebase.score(result, ply, board.isWhiteTurn);
+}
+
+// Plies to take off a move that has just been made on the board, 0 for a full-depth search.
+// Only quiet, non-killer moves late in the list that do not give check are reduced.
+private int reduction(Board board, int move, int index, int depth, int ply, boolean inCheck) {
+    if (!lateMoveReductions || depth < PRUNING_MIN_DEPTH || index < LMR_FULL_DEPTH_MOVES || inCheck) return 0;
+    if (Move.captured(move) != Piece.EMPTY || Move.promoted(move) != Piece.EMPTY) return 0;
+    if (orderer.isKiller(move, ply)) return 0;
+    if (board.isKingInCheck(board.isWhiteTurn)) return 0; // the move gives check
+    return depth >= 6 && index >= 8 ? 2 : 1;
 }
 
 
+// Capture-only search at the leaves, so a pending capture is resolved before the position is
+// scored. The side to move may always "stand pat" on the static evaluation. Captures that
+// lose material by static exchange, or cannot reach alpha even with a margin, are not searched.
+private int quiescence(Board board, int alpha, int beta, boolean maximizingPlayer, int ply) {
+    if (timeUp()) return 0;
+    qnodes++;
+    pvLength[ply] = ply;
+    int tablebaseScore = probeTablebase(board, ply);
+    if (tablebaseScore != NO_TABLEBASE_SCORE) return tablebaseScore;
+    int standPat = board.evaluate(pawnTable);
+    if (ply >= Board.MAX_PLY - 1) return standPat;
+
+    if (maximizingPlayer) {
+        if (standPat >= beta) return standPat;
+        alpha = Math.max(alpha, standPat);
+    } else {
+        if (standPat <= alpha) return standPat;
+        beta = Math.min(beta, standPat);
+    }
+
+    int[] moves = moveBuffers[ply];
+    int count = MoveGenerator.generate(board, sideToMove(board), MoveGenerator.CAPTURES, moves, 0);
+    orderer.score(moves, count, Move.NONE, ply);
+
+    int best = standPat;
+    for (int i = 0; i < count; i++) {
+        int move = orderer.next(moves, i, count, ply);
+        int gain = board.pieceValue(Move.captured(move));
+        if (Move.promoted(move) != Piece.EMPTY) gain += board.pieceValue(Move.promoted(move)) - board.pieceValue(Move.piece(move));
+
+        // delta pruning: even winning the piece for free leaves us on the wrong side of the window
+        if (maximizingPlayer ? standPat + gain + DELTA_MARGIN <= alpha : standPat - gain - DELTA_MARGIN >= beta) continue;
+        if (board.staticExchange(move) < 0) continue;
+
+        board.make(move);
+        int score = quiescence(board, alpha, beta, !maximizingPlayer, ply + 1);
+        board.unmake(move);
+        if (stopped) return 0;
+
+        if (maximizingPlayer) {
+            if (score > best) best = score;
+            alpha = Math.max(alpha, score);
+        } else {
+            if (score < best) best = score;
+            beta = Math.min(beta, score);
+        }
+        if (beta <= alpha) break;
+    }
+    return best;
+}
+
+// Starts the bot's search on the engine thread and returns at once. The position is copied
+// here, on the caller's (event) thread. When the search finishes, the result is handed to
+// Chess.onBotSearchDone on the event thread; cancel(true) on the returned handle aborts it.
+public Future<Move> makeSmartMoveAsync() {
+    Board board = new Board(game.coins, false); // black bot turn
+    long budget = timeBudgetMillis;
+
+    FutureTask<Move> search = new FutureTask<Move>(() -> getBestMoveTimed(board, budget)) {
+        @Override
+        protected void done() {
+            if (isCancelled()) return;
+            long ready = System.nanoTime();
+            SwingUtilities.invokeLater(() -> game.onBotSearchDone(this, ready));
+        }
+    };
+    engineExecutor.execute(search);
+    return search;
+}
+
+// Stops the engine, helper and root split threads; searches still running are interrupted
+public void shutdown() {
+    engineExecutor.shutdownNow();
+    if (helperExecutor != null) helperExecutor.shutdownNow();
+    if (rootPool != null) rootPool.shutdownNow();
+}
+
 public void makeSmartMove() {
+    Move bookMove = bookMove();
+    if (bookMove != null) {
+        game.makeBotMove(bookMove);
+        return;
+    }
+
     Board board = new Board(game.coins, false); // black bot turn
-    Move bestMove = getBestMove(board, 3, false); // depth 2 for now
+    Move bestMove = getBestMoveTimed(board, timeBudgetMillis);
 
     if (bestMove != null) {
         game.makeBotMove(bestMove);
@@ -0,0 +1,36 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event for one iterative-deepening iteration of the main searcher
+@Name("chess.Iteration")
+@Label("Search Iteration")
+@Category({ "Chess", "Engine" })
+@Description("One iterative-deepening iteration of a timed search")
+@StackTrace(false)
+public class IterationEvent extends Event {
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Completed")
+    @Description("False when the time budget ran out during the iteration")
+    boolean completed;
+
+    @Label("Score")
+    int score;
+
+    @Label("Best Move")
+    String bestMove;
+
+    @Label("Nodes")
+    @Description("Nodes of the main searcher and root split workers in this iteration")
+    long nodes;
+
+    @Label("Aspiration Re-searches")
+    @Description("Times the root window failed and was widened")
+    int researches;
+}
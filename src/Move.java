@@ -6,4 +6,58 @@ class Move {
             toRow = tr;
             toCol = tc;
         }
+
+        // ////////////////////// packed int moves used by the search
+        // bits 0-5 from square, 6-11 to square, 12-15 moving piece, 16-19 captured piece,
+        // 20-23 promotion piece (Piece codes, 0 = none). A move never packs to 0.
+        static final int NONE = 0;
+
+        static int encode(int from, int to, int piece, int captured, int promoted) {
+            return from | (to << 6) | (piece << 12) | (captured << 16) | (promoted << 20);
+        }
+
+        static int from(int move) {
+            return move & 63;
+        }
+
+        static int to(int move) {
+            return (move >>> 6) & 63;
+        }
+
+        static int piece(int move) {
+            return (move >>> 12) & 15;
+        }
+
+        static int captured(int move) {
+            return (move >>> 16) & 15;
+        }
+
+        static int promoted(int move) {
+            return (move >>> 20) & 15;
+        }
+
+        // Adapter for the UI side, which still works with row/column moves
+        static Move of(int move) {
+            int from = from(move), to = to(move);
+            return new Move(from >> 3, from & 7, to >> 3, to & 7);
+        }
+
+        // Coordinate notation, e.g. "e2e4"; row 0 is rank 8
+        @Override
+        public String toString() {
+            return "" + (char) ('a' + fromCol) + (char) ('8' - fromRow) + (char) ('a' + toCol) + (char) ('8' - toRow);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Move)) return false;
+            Move other = (Move) o;
+            return fromRow == other.fromRow && fromCol == other.fromCol
+                    && toRow == other.toRow && toCol == other.toCol;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((fromRow * 8 + fromCol) << 6) | (toRow * 8 + toCol);
+        }
     }
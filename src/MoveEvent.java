@@ -0,0 +1,35 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder event for a move applied to the game board, by the player or the bot. The
+// event's duration is the board update itself; uiLatency adds the wait before it started.
+@Name("chess.MoveApplied")
+@Label("Move Applied")
+@Category({ "Chess", "UI" })
+@Description("A move applied to the game board")
+@StackTrace(false)
+public class MoveEvent extends Event {
+
+    @Label("Move")
+    String move;
+
+    @Label("Piece")
+    String piece;
+
+    @Label("Captured")
+    String captured;
+
+    @Label("Bot")
+    @Description("True for a bot move, false for a player move")
+    boolean bot;
+
+    @Label("UI Latency")
+    @Description("From the click (player) or the finished search (bot) until the board shows the move")
+    @Timespan(Timespan.NANOSECONDS)
+    long uiLatency;
+}
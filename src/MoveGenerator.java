@@ -0,0 +1,83 @@
+import java.util.List;
+
+// Enumerates each piece's reachable squares straight from its attack set, so the work done
+// scales with the number of moves produced instead of testing every from/to square pair.
+// Moves follow the same rules as Board.isLegalMove (pseudo-legal, promotion handled in make).
+public final class MoveGenerator {
+
+    public static final int ALL_MOVES = 0;
+    public static final int CAPTURES = 1; // moves that take an enemy piece
+    public static final int QUIETS = 2;   // moves to empty squares
+
+    // Upper bound on pseudo-legal moves in one position, used to size per-ply buffers
+    public static final int MAX_MOVES = 384;
+
+    private MoveGenerator() {
+    }
+
+    // Writes packed moves (see Move.encode) into moves[start..] and returns the new end index.
+    // Moves come out by ascending from-square, then ascending to-square, the same order the
+    // old 64x64 scan produced. Nothing is allocated.
+    public static int generate(Board board, int color, int mode, int[] moves, int start) {
+        long own = board.colorBits[color];
+        long enemy = board.colorBits[1 - color];
+        long empty = ~board.occupied;
+
+        long allowed;
+        if (mode == CAPTURES) {
+            allowed = enemy;
+        } else if (mode == QUIETS) {
+            allowed = empty;
+        } else {
+            allowed = ~own;
+        }
+
+        int count = start;
+        long movers = own;
+        while (movers != 0) {
+            int from = Long.numberOfTrailingZeros(movers);
+            movers &= movers - 1;
+            int piece = board.squares[from];
+
+            long targets = targets(board, piece, from, color, enemy, empty) & allowed;
+            // a pawn reaching the last row always promotes to a queen
+            long promotionRow = color == Piece.WHITE ? 0xFFL : 0xFF00000000000000L;
+            int promoted = Piece.type(piece) == Piece.PAWN ? Piece.make(color, Piece.QUEEN) : Piece.EMPTY;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                moves[count++] = Move.encode(from, to, piece, board.squares[to],
+                        (promotionRow & (1L << to)) != 0 ? promoted : Piece.EMPTY);
+            }
+        }
+        return count;
+    }
+
+    public static void generate(Board board, int color, int mode, List<Move> moves) {
+        int[] buffer = new int[MAX_MOVES];
+        int count = generate(board, color, mode, buffer, 0);
+        for (int i = 0; i < count; i++) {
+            moves.add(Move.of(buffer[i]));
+        }
+    }
+
+    private static long targets(Board board, int piece, int from, int color, long enemy, long empty) {
+        int type = Piece.type(piece);
+        if (type != Piece.PAWN) return Attacks.attacks(type, from, board.occupied);
+
+        long targets = Attacks.pawnAttacks(color, from) & enemy;
+        int row = from >> 3;
+        if (color == Piece.WHITE) {
+            if (row > 0 && (empty & (1L << (from - 8))) != 0) {
+                targets |= 1L << (from - 8);
+                if (row == 6 && (empty & (1L << (from - 16))) != 0) targets |= 1L << (from - 16);
+            }
+        } else {
+            if (row < 7 && (empty & (1L << (from + 8))) != 0) {
+                targets |= 1L << (from + 8);
+                if (row == 1 && (empty & (1L << (from + 16))) != 0) targets |= 1L << (from + 16);
+            }
+        }
+        return targets;
+    }
+}
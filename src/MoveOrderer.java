@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+// Move ordering used at every search node, best first:
+//   1. the transposition-table move
+//   2. captures (and promotions) by MVV-LVA: most valuable victim, then least valuable attacker
+//   3. the two killer moves of this ply: quiet moves that caused a cutoff in a sibling node
+//   4. remaining quiet moves by history score: how often (weighted by depth) they caused a cutoff
+// Each searcher thread owns its own orderer, so none of this needs synchronising.
+public class MoveOrderer {
+
+    private static final int TT_MOVE = 1_000_000;
+    private static final int CAPTURE = 500_000;
+    private static final int FIRST_KILLER = 400_000;
+    private static final int SECOND_KILLER = 390_000;
+    private static final int HISTORY_LIMIT = 300_000; // history scores stay below the killers
+
+    private final int[][] scores = new int[Board.MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] killers = new int[Board.MAX_PLY][2];
+    private final int[][] history = new int[Piece.COUNT][64]; // [moving piece][to square]
+
+    // nodes that ended in a beta cutoff, and how many of those were caused by the first move
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    // Killers only make sense within one search; history is halved so old knowledge fades
+    public void newSearch() {
+        for (int[] k : killers) Arrays.fill(k, Move.NONE);
+        for (int[] h : history) {
+            for (int i = 0; i < h.length; i++) h[i] >>= 1;
+        }
+    }
+
+    public void resetCounters() {
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    // Scores moves[0..count) for ply; pick them with next() or put them in order with sort()
+    public void score(int[] moves, int count, int ttMove, int ply) {
+        int[] s = scores[ply];
+        int[] k = killers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int captured = Move.captured(move);
+            if (move == ttMove) {
+                s[i] = TT_MOVE;
+            } else if (captured != Piece.EMPTY || Move.promoted(move) != Piece.EMPTY) {
+                int victim = captured != Piece.EMPTY ? Piece.type(captured) : Piece.PAWN;
+                if (Move.promoted(move) != Piece.EMPTY) victim += Piece.QUEEN;
+                s[i] = CAPTURE + victim * 8 + (Piece.KING - Piece.type(Move.piece(move)));
+            } else if (move == k[0]) {
+                s[i] = FIRST_KILLER;
+            } else if (move == k[1]) {
+                s[i] = SECOND_KILLER;
+            } else {
+                s[i] = history[Move.piece(move)][Move.to(move)];
+            }
+        }
+    }
+
+    // Swaps the best remaining move into position index and returns it (selection sort, so a
+    // node that cuts off early never pays for sorting the whole list)
+    public int next(int[] moves, int index, int count, int ply) {
+        int[] s = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (s[i] > s[best]) best = i;
+        }
+        if (best != index) {
+            int move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = s[best];
+            s[best] = s[index];
+            s[index] = score;
+        }
+        return moves[index];
+    }
+
+    // Full stable sort by score, for the root where the whole list is handed out at once
+    public void sort(int[] moves, int count, int ply) {
+        int[] s = scores[ply];
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = s[i];
+            int j = i - 1;
+            while (j >= 0 && s[j] < score) {
+                moves[j + 1] = moves[j];
+                s[j + 1] = s[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            s[j + 1] = score;
+        }
+    }
+
+    // Called when the move at position index of the list caused a beta cutoff
+    public void recordCutoff(int move, int index, int depth, int ply) {
+        cutoffs++;
+        if (index == 0) firstMoveCutoffs++;
+        if (Move.captured(move) != Piece.EMPTY || Move.promoted(move) != Piece.EMPTY) return;
+
+        int[] k = killers[ply];
+        if (k[0] != move) {
+            k[1] = k[0];
+            k[0] = move;
+        }
+
+        int[] h = history[Move.piece(move)];
+        h[Move.to(move)] += depth * depth;
+        if (h[Move.to(move)] >= HISTORY_LIMIT) {
+            for (int[] row : history) {
+                for (int i = 0; i < row.length; i++) row[i] >>= 1;
+            }
+        }
+    }
+
+    public boolean isKiller(int move, int ply) {
+        return move == killers[ply][0] || move == killers[ply][1];
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    // Share of cutoffs produced by the first move searched; close to 1 means good ordering
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0.0 : (double) firstMoveCutoffs / cutoffs;
+    }
+}
@@ -0,0 +1,56 @@
+// Fixed-size cache of pawn-structure evaluations keyed by Board.pawnKey. Pawn structures change
+// rarely along a search path, so nearly every leaf finds its entry here. Each entry keeps the
+// structural score and both sides' passed pawns; the passed-pawn terms that depend on the other
+// pieces are then worked out from the masks. Owned by one searcher, so it is not synchronised.
+public class PawnHashTable {
+
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final long[] passed; // two per entry: white, black
+    private final int mask;
+
+    private long probes;
+    private long hits;
+
+    // entries is rounded down to a power of two
+    public PawnHashTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        keys = new long[size];
+        scores = new int[size];
+        passed = new long[size * 2];
+        mask = size - 1;
+        // every slot starts out as the valid entry of the pawnless position (key 0, all zero)
+    }
+
+    // Pawn-structure score of board, white minus black
+    public int evaluate(Board board) {
+        long key = board.pawnKey;
+        int i = (int) key & mask;
+        probes++;
+        if (keys[i] == key) {
+            hits++;
+        } else {
+            long white = board.pieces[Piece.WHITE_PAWN], black = board.pieces[Piece.BLACK_PAWN];
+            keys[i] = key;
+            scores[i] = PawnStructure.score(white, black);
+            passed[2 * i] = PawnStructure.passedPawns(Piece.WHITE, white, black);
+            passed[2 * i + 1] = PawnStructure.passedPawns(Piece.BLACK, black, white);
+        }
+        return scores[i] + PawnStructure.freePassers(board.occupied, passed[2 * i], passed[2 * i + 1]);
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void resetCounters() {
+        probes = 0;
+        hits = 0;
+    }
+}
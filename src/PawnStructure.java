@@ -0,0 +1,116 @@
+// Pawn-structure evaluation from the two pawn bitboards alone, in centipawns,
+// white minus black. Since only pawns matter, PawnHashTable caches the result by Board.pawnKey.
+// White pawns move towards row 0, black pawns towards row 7, as everywhere else.
+public final class PawnStructure {
+
+    static final int DOUBLED = 12;  // per pawn beyond the first on a file
+    static final int ISOLATED = 15; // no friendly pawn on either neighbouring file
+    static final int BACKWARD = 10; // cannot be supported, and its stop square is covered by an enemy pawn
+    // passed pawn bonus by rows advanced from the start row
+    static final int[] PASSED = { 0, 5, 10, 20, 35, 60, 100, 0 };
+
+    private static final long[] FILE = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    private static final long[][] PASSED_SPAN = new long[2][64]; // rows ahead on own and adjacent files
+    private static final long[][] FRONT_SPAN = new long[2][64];  // rows ahead on the own file
+    private static final long[][] SUPPORT = new long[2][64];     // same row and behind on adjacent files
+
+    static {
+        for (int f = 0; f < 8; f++) {
+            FILE[f] = 0x0101010101010101L << f;
+        }
+        for (int f = 0; f < 8; f++) {
+            ADJACENT_FILES[f] = (f > 0 ? FILE[f - 1] : 0) | (f < 7 ? FILE[f + 1] : 0);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq >> 3, col = sq & 7;
+            for (int r = 0; r < 8; r++) {
+                long rowBits = 0xFFL << (r * 8);
+                long around = (FILE[col] | ADJACENT_FILES[col]) & rowBits;
+                if (r < row) {
+                    PASSED_SPAN[Piece.WHITE][sq] |= around;
+                    FRONT_SPAN[Piece.WHITE][sq] |= FILE[col] & rowBits;
+                    SUPPORT[Piece.BLACK][sq] |= ADJACENT_FILES[col] & rowBits;
+                } else if (r > row) {
+                    PASSED_SPAN[Piece.BLACK][sq] |= around;
+                    FRONT_SPAN[Piece.BLACK][sq] |= FILE[col] & rowBits;
+                    SUPPORT[Piece.WHITE][sq] |= ADJACENT_FILES[col] & rowBits;
+                } else {
+                    SUPPORT[Piece.WHITE][sq] |= ADJACENT_FILES[col] & rowBits;
+                    SUPPORT[Piece.BLACK][sq] |= ADJACENT_FILES[col] & rowBits;
+                }
+            }
+        }
+    }
+
+    private PawnStructure() {
+    }
+
+    // Doubled, isolated, backward and passed pawn terms, white minus black
+    public static int score(long whitePawns, long blackPawns) {
+        return sideScore(Piece.WHITE, whitePawns, blackPawns) - sideScore(Piece.BLACK, blackPawns, whitePawns);
+    }
+
+    // Pawns of color with no enemy pawn ahead of them on their own or a neighbouring file, and
+    // no friendly pawn in front (only the front pawn of a doubled pair counts)
+    public static long passedPawns(int color, long own, long enemy) {
+        long passed = 0;
+        long pawns = own;
+        while (pawns != 0) {
+            int sq = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if ((enemy & PASSED_SPAN[color][sq]) == 0 && (own & FRONT_SPAN[color][sq]) == 0) passed |= 1L << sq;
+        }
+        return passed;
+    }
+
+    // Rows a pawn of color on sq has advanced from its start row
+    static int advance(int color, int sq) {
+        return color == Piece.WHITE ? 6 - (sq >> 3) : (sq >> 3) - 1;
+    }
+
+    // Extra half bonus for passed pawns whose way to the last row is empty. Depends on all pieces,
+    // so it is computed per position from the cached passed-pawn masks.
+    public static int freePassers(long occupied, long whitePassed, long blackPassed) {
+        int score = 0;
+        while (whitePassed != 0) {
+            int sq = Long.numberOfTrailingZeros(whitePassed);
+            whitePassed &= whitePassed - 1;
+            if ((occupied & FRONT_SPAN[Piece.WHITE][sq]) == 0) score += PASSED[advance(Piece.WHITE, sq)] / 2;
+        }
+        while (blackPassed != 0) {
+            int sq = Long.numberOfTrailingZeros(blackPassed);
+            blackPassed &= blackPassed - 1;
+            if ((occupied & FRONT_SPAN[Piece.BLACK][sq]) == 0) score -= PASSED[advance(Piece.BLACK, sq)] / 2;
+        }
+        return score;
+    }
+
+    private static int sideScore(int color, long own, long enemy) {
+        int score = 0;
+        for (int f = 0; f < 8; f++) {
+            int onFile = Long.bitCount(own & FILE[f]);
+            if (onFile == 0) continue;
+            if (onFile > 1) score -= DOUBLED * (onFile - 1);
+            if ((own & ADJACENT_FILES[f]) == 0) score -= ISOLATED * onFile;
+        }
+
+        long pawns = own;
+        while (pawns != 0) {
+            int sq = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int col = sq & 7;
+
+            if ((enemy & PASSED_SPAN[color][sq]) == 0 && (own & FRONT_SPAN[color][sq]) == 0) {
+                score += PASSED[advance(color, sq)];
+            }
+            // backward: neighbours exist (else it is isolated) but are all ahead, and advancing
+            // would walk into an enemy pawn's attack
+            if ((own & ADJACENT_FILES[col]) != 0 && (own & SUPPORT[color][sq]) == 0) {
+                int stop = color == Piece.WHITE ? sq - 8 : sq + 8;
+                if (stop >= 0 && stop < 64 && (Attacks.pawnAttacks(color, stop) & enemy) != 0) score -= BACKWARD;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.List;
+
+// Counts the leaves of the move tree to a fixed depth, to check the move generator against known
+// totals and to measure how fast it enumerates positions. Moves that leave the mover's own king
+// attacked are not counted, so the totals are the usual legal-move perft numbers.
+//
+//   java Perft                          built-in suite
+//   java Perft <fen|startpos> <depth>   one position
+//   java Perft <fen|startpos> <depth> divide
+//   java Perft <fen|startpos> <depth> board   same count through getAllLegalMoves/makeMove
+//
+// The rules here have no castling, no en passant and promote to a queen only, so the suite keeps
+// to positions and depths where none of those can occur and the published numbers still hold.
+public class Perft {
+
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    // fen, then the expected leaf count for depth 1, 2, ...
+    static final Object[][] SUITE = {
+        { START, new long[] { 20, 400, 8_902, 197_281 } },
+        { "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", new long[] { 14, 191 } },
+        { "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                new long[] { 46, 2_079, 89_890, 3_894_594 } },
+    };
+
+    private final int[][] moveBuffers = new int[Board.MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.exit(new Perft().runSuite() ? 0 : 1);
+        }
+
+        Board board = Board.fromFen(args[0].equals("startpos") ? START : args[0]);
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        String mode = args.length > 2 ? args[2] : "";
+        Perft perft = new Perft();
+
+        long start = System.nanoTime();
+        long leaves;
+        if (mode.equals("divide")) {
+            leaves = perft.divide(board, depth);
+        } else if (mode.equals("board")) {
+            leaves = perftBoard(board, depth);
+        } else {
+            leaves = perft.perft(board, depth);
+        }
+        report(depth, leaves, System.nanoTime() - start);
+    }
+
+    // Leaf count at depth plies from board, on the packed-move make/unmake path the search uses
+    public long perft(Board board, int depth) {
+        return perft(board, depth, 0);
+    }
+
+    private long perft(Board board, int depth, int ply) {
+        if (depth == 0) return 1;
+        int[] moves = moveBuffers[ply];
+        int count = MoveGenerator.generate(board, board.isWhiteTurn ? Piece.WHITE : Piece.BLACK, MoveGenerator.ALL_MOVES, moves, 0);
+        boolean white = board.isWhiteTurn;
+        if (depth == 1) return countLegal(board, moves, count, white);
+
+        long leaves = 0;
+        for (int i = 0; i < count; i++) {
+            board.make(moves[i]);
+            if (!board.isKingInCheck(white)) leaves += perft(board, depth - 1, ply + 1);
+            board.unmake(moves[i]);
+        }
+        return leaves;
+    }
+
+    // Bulk counting at the last ply. Out of check, a move by anything but the king from a square
+    // that is not pinned cannot expose the king (there is no en passant to clear a second square),
+    // so it is counted without being made; king moves, pinned pieces and evasions are made.
+    private static long countLegal(Board board, int[] moves, int count, boolean white) {
+        int us = white ? Piece.WHITE : Piece.BLACK;
+        long king = board.pieces[Piece.make(us, Piece.KING)];
+        long pinned = king == 0 || board.isKingInCheck(white) ? -1L
+                : pinned(board, Long.numberOfTrailingZeros(king), us);
+
+        long leaves = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Piece.type(Move.piece(move)) != Piece.KING && (pinned & (1L << Move.from(move))) == 0) {
+                leaves++;
+                continue;
+            }
+            board.make(move);
+            if (!board.isKingInCheck(white)) leaves++;
+            board.unmake(move);
+        }
+        return leaves;
+    }
+
+    // Pieces of colour us that are the only piece between their king and an enemy slider on its line
+    private static long pinned(Board board, int kingSq, int us) {
+        int them = 1 - us;
+        long queens = board.pieces[Piece.make(them, Piece.QUEEN)];
+        long snipers = (Attacks.rookAttacks(kingSq, 0) & (board.pieces[Piece.make(them, Piece.ROOK)] | queens))
+                | (Attacks.bishopAttacks(kingSq, 0) & (board.pieces[Piece.make(them, Piece.BISHOP)] | queens));
+
+        long pinned = 0;
+        while (snipers != 0) {
+            long blockers = Attacks.between(kingSq, Long.numberOfTrailingZeros(snipers)) & board.occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) pinned |= blockers & board.colorBits[us];
+            snipers &= snipers - 1;
+        }
+        return pinned;
+    }
+
+    // perft with a line per root move, for finding which subtree a wrong total comes from
+    public long divide(Board board, int depth) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(board, board.isWhiteTurn ? Piece.WHITE : Piece.BLACK, MoveGenerator.ALL_MOVES, moves, 0);
+        boolean white = board.isWhiteTurn;
+
+        long leaves = 0;
+        for (int i = 0; i < count; i++) {
+            board.make(moves[i]);
+            if (!board.isKingInCheck(white)) {
+                long n = depth <= 1 ? 1 : perft(board, depth - 1, 1);
+                System.out.println(Move.of(moves[i]) + ": " + n);
+                leaves += n;
+            }
+            board.unmake(moves[i]);
+        }
+        return leaves;
+    }
+
+    // Same count through the List<Move> API and copying makeMove, to measure that path
+    public static long perftBoard(Board board, int depth) {
+        if (depth == 0) return 1;
+        List<Move> moves = board.getAllLegalMoves();
+        boolean white = board.isWhiteTurn;
+
+        long leaves = 0;
+        for (Move move : moves) {
+            Board next = board.makeMove(move);
+            if (!next.isKingInCheck(white)) leaves += perftBoard(next, depth - 1);
+        }
+        return leaves;
+    }
+
+    public boolean runSuite() {
+        boolean ok = true;
+        long totalLeaves = 0, totalNanos = 0;
+        for (Object[] entry : SUITE) {
+            String fen = (String) entry[0];
+            long[] expected = (long[]) entry[1];
+            System.out.println(fen);
+            for (int depth = 1; depth <= expected.length; depth++) {
+                long start = System.nanoTime();
+                long leaves = perft(Board.fromFen(fen), depth);
+                long nanos = System.nanoTime() - start;
+                totalLeaves += leaves;
+                totalNanos += nanos;
+
+                boolean match = leaves == expected[depth - 1];
+                ok &= match;
+                System.out.printf("  depth %d %12d %s%n", depth, leaves,
+                        match ? "ok" : "FAILED, expected " + expected[depth - 1]);
+            }
+        }
+        report(0, totalLeaves, totalNanos);
+        System.out.println(ok ? "all counts match" : "count mismatch");
+        return ok;
+    }
+
+    private static void report(int depth, long leaves, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%sleaves %d, %.3f s, %.0f nodes/s%n", depth > 0 ? "depth " + depth + ", " : "",
+                leaves, seconds, seconds > 0 ? leaves / seconds : 0.0);
+    }
+}
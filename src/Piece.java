@@ -0,0 +1,73 @@
+// Integer piece codes used by the bitboard Board. The Swing UI keeps working with the
+// uni-code glyphs, so every code maps one-to-one onto a glyph and back.
+public final class Piece {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // piece types (colour independent)
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    // piece codes, 0 means an empty square
+    public static final int EMPTY = 0;
+    public static final int WHITE_PAWN = 1;
+    public static final int WHITE_KNIGHT = 2;
+    public static final int WHITE_BISHOP = 3;
+    public static final int WHITE_ROOK = 4;
+    public static final int WHITE_QUEEN = 5;
+    public static final int WHITE_KING = 6;
+    public static final int BLACK_PAWN = 7;
+    public static final int BLACK_KNIGHT = 8;
+    public static final int BLACK_BISHOP = 9;
+    public static final int BLACK_ROOK = 10;
+    public static final int BLACK_QUEEN = 11;
+    public static final int BLACK_KING = 12;
+
+    public static final int COUNT = 13;
+
+    private static final String[] GLYPHS = {
+        null,
+        "♙", "♘", "♗", "♖", "♕", "♔",
+        "♟", "♞", "♝", "♜", "♛", "♚"
+    };
+
+    private Piece() {
+    }
+
+    public static int make(int color, int type) {
+        return color * 6 + type + 1;
+    }
+
+    public static int type(int piece) {
+        return (piece - 1) % 6;
+    }
+
+    public static int color(int piece) {
+        return piece > WHITE_KING ? BLACK : WHITE;
+    }
+
+    public static boolean isWhite(int piece) {
+        return piece >= WHITE_PAWN && piece <= WHITE_KING;
+    }
+
+    public static boolean isBlack(int piece) {
+        return piece >= BLACK_PAWN;
+    }
+
+    public static String glyph(int piece) {
+        return GLYPHS[piece];
+    }
+
+    public static int fromGlyph(String glyph) {
+        if (glyph == null) return EMPTY;
+        for (int piece = WHITE_PAWN; piece < COUNT; piece++) {
+            if (GLYPHS[piece].equals(glyph)) return piece;
+        }
+        return EMPTY;
+    }
+}
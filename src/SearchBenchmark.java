@@ -0,0 +1,50 @@
+// Fixed-depth search over a few positions with each pruning switch combination, printing the
+// node count, time and result of each run so the pruned search can be compared with the plain one.
+//
+//   java SearchBenchmark [depth]
+public class SearchBenchmark {
+
+    static final String[] POSITIONS = {
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+        "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w - - 4 4",
+        "r2q1rk1/pp2bppp/2n1pn2/3p4/3P4/2NBPN2/PP3PPP/R2Q1RK1 b - - 0 10",
+        "2r3k1/1q1nbppp/r3p3/3pP3/pPpP4/P1Q2N2/2RN1PPP/2R4K b - - 0 22",
+        "8/5pk1/6p1/8/3K4/8/5PP1/8 w - - 0 40",
+        "8/8/4k3/3p4/3P4/4K3/8/8 w - - 0 50",
+        "6k1/5ppp/8/8/8/8/1R3PPP/6K1 w - - 0 30",
+    };
+
+    private static final String[] CONFIGS = { "plain", "null move", "LMR", "null move + LMR" };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        long[] totalNodes = new long[CONFIGS.length];
+        long[] totalMillis = new long[CONFIGS.length];
+
+        for (String fen : POSITIONS) {
+            System.out.println(fen);
+            for (int c = 0; c < CONFIGS.length; c++) {
+                ChessBot bot = new ChessBot(null);
+                bot.setNullMovePruning(c == 1 || c == 3);
+                bot.setLateMoveReductions(c == 2 || c == 3);
+
+                Board board = Board.fromFen(fen);
+                long start = System.nanoTime();
+                Move best = bot.getBestMove(board, depth, board.isWhiteTurn);
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                bot.shutdown();
+
+                totalNodes[c] += bot.getNodes();
+                totalMillis[c] += millis;
+                System.out.printf("  %-16s %12d nodes %7d ms  score %6d  %s%n", CONFIGS[c], bot.getNodes(),
+                        millis, bot.getLastScore(), best == null ? "-" : best);
+            }
+        }
+
+        System.out.println("depth " + depth + ", total:");
+        for (int c = 0; c < CONFIGS.length; c++) {
+            System.out.printf("  %-16s %12d nodes %7d ms  %5.1f%% of plain%n", CONFIGS[c], totalNodes[c], totalMillis[c],
+                    100.0 * totalNodes[c] / totalNodes[0]);
+        }
+    }
+}
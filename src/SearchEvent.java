@@ -0,0 +1,42 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event spanning one bot search, from the first iteration until the move is
+// chosen. Enabled in chess.jfc; with JFR off or the event disabled it costs next to nothing.
+@Name("chess.Search")
+@Label("Engine Search")
+@Category({ "Chess", "Engine" })
+@Description("One bot search: root position, depth reached, score and nodes")
+@StackTrace(false)
+public class SearchEvent extends Event {
+
+    @Label("Root Position")
+    @Description("FEN of the searched position")
+    String fen;
+
+    @Label("Depth")
+    @Description("Last completed iteration")
+    int depth;
+
+    @Label("Score")
+    @Description("Score of the chosen move, centipawns from white's side")
+    int score;
+
+    @Label("Best Move")
+    String bestMove;
+
+    @Label("Nodes")
+    @Description("Nodes of all threads")
+    long nodes;
+
+    @Label("Threads")
+    int threads;
+
+    @Label("Timed")
+    @Description("Iterative deepening under a time budget, false for a fixed-depth search")
+    boolean timed;
+}
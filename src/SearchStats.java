@@ -0,0 +1,99 @@
+// What one search did, summed over every thread that took part. Each searcher counts into its
+// own plain fields while it runs; ChessBot only adds them up here once the search is over, so
+// the counting costs the hot loop an increment and shares no cache lines between threads.
+public class SearchStats {
+
+    long nodes;            // every minimax and quiescence node
+    long qnodes;           // the quiescence part of nodes
+    long cutoffs;          // minimax nodes that failed high
+    long firstMoveCutoffs; // ... on their first move
+    long ttProbes;
+    long ttHits;
+    long pawnProbes;
+    long pawnHits;
+    long tbHits;           // positions answered by the endgame tablebases
+    long elapsedNanos;
+    int threads;
+    int depth;             // last completed iteration
+
+    // per completed iteration, index = depth: time and (main searcher plus root split) nodes
+    final long[] depthNanos = new long[ChessBot.MAX_DEPTH + 1];
+    final long[] depthNodes = new long[ChessBot.MAX_DEPTH + 1];
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getQuiescenceNodes() {
+        return qnodes;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    // Share of cutoffs produced by the first move searched; close to 1 means good ordering
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0.0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    public double getTranspositionHitRate() {
+        return ttProbes == 0 ? 0.0 : (double) ttHits / ttProbes;
+    }
+
+    public long getTablebaseHits() {
+        return tbHits;
+    }
+
+    public double getPawnHashHitRate() {
+        return pawnProbes == 0 ? 0.0 : (double) pawnHits / pawnProbes;
+    }
+
+    // Growth of the tree from one iteration to the next: nodes of the last iteration divided
+    // by nodes of the one before (0 with fewer than two iterations)
+    public double getEffectiveBranchingFactor() {
+        if (depth < 2 || depthNodes[depth - 1] == 0) return 0.0;
+        return (double) depthNodes[depth] / depthNodes[depth - 1];
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    // Time spent on iteration d alone, 0 for iterations that did not finish
+    public long getDepthMillis(int d) {
+        return d >= 1 && d <= depth ? depthNanos[d] / 1_000_000 : 0;
+    }
+
+    public long getDepthNodes(int d) {
+        return d >= 1 && d <= depth ? depthNodes[d] : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("depth %d, %d nodes (%.0f%% quiescence), %d nodes/s, %d ms, %d thread(s)%n",
+                depth, nodes, nodes == 0 ? 0.0 : 100.0 * qnodes / nodes, getNodesPerSecond(), getElapsedMillis(), threads));
+        sb.append(String.format("cutoffs %d, first move %.1f%%, branching factor %.2f, tt hits %.1f%%, pawn hash hits %.1f%%, tablebase hits %d%n",
+                cutoffs, 100 * getFirstMoveCutoffRate(), getEffectiveBranchingFactor(), 100 * getTranspositionHitRate(),
+                100 * getPawnHashHitRate(), tbHits));
+        sb.append("per depth:");
+        for (int d = 1; d <= depth; d++) {
+            if (depthNodes[d] == 0) continue; // a fixed-depth search has only its last depth
+            sb.append(String.format(" %d:%dms/%d", d, getDepthMillis(d), depthNodes[d]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,326 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Endgame tablebases for every material combination of up to MAX_PIECES pieces, kings included,
+// written by TablebaseGenerator and memory-mapped here. Each table stores every placement of its
+// pieces with either side to move: first a 2-bit win/draw/loss value per position, then the
+// distance to mate, bit-packed with as many bits as the table's longest win needs.
+//
+// The game ends when a king is captured, so "mate" here is the capture of the king and distances
+// count plies until it happens (1 = the side to move can take the king now). Odd distances are
+// wins for the side to move, even ones losses. A probe is one or two byte reads from the page
+// cache, and tables are shared by every search thread.
+public final class Tablebase {
+
+    public static final int MAX_PIECES = 4;
+    public static final String DEFAULT_DIR = "tablebases"; // overridden by -Dchess.tablebases=<dir>
+
+    // probe results besides a distance to mate
+    public static final int UNKNOWN = -1; // no table for the position
+    public static final int DRAW = 0;
+
+    // Search score of a won position, less the plies to the capture. Below the score of a king
+    // capture the search sees itself, above any ordinary evaluation.
+    public static final int WIN_SCORE = 8000;
+
+    // Lowest magnitude of a won score: the longest distance a table can store (one byte), probed
+    // at the deepest ply
+    static final int MIN_WIN_SCORE = WIN_SCORE - 255 - Board.MAX_PLY;
+
+    static final String EXTENSION = ".ctb";
+    static final int MAGIC = 0x43544231; // "CTB1"
+    static final int HEADER_BYTES = 16;  // magic, piece count, 4 piece codes, distance bits, padding
+
+    static final int WDL_DRAW = 0, WDL_WIN = 1, WDL_LOSS = 2;
+
+    // The white king is moved by a board symmetry into a small region: the a1-d1-d4 triangle
+    // when there are no pawns (mirrors and the a1-h8 diagonal), the a-d files otherwise (only
+    // the mirror, since pawns have a direction). These list the region's squares by king index.
+    static final int[] TRIANGLE_SQUARES = new int[10];
+    static final int[] LEFT_HALF_SQUARES = new int[32];
+    private static final int[][] KING_INDEX = new int[2][64]; // [pawns ? 1 : 0][square], -1 outside
+
+    // Material of a table as a number, 0..3^10: base-3 digits count each non-king piece code
+    private static final int[] MATERIAL_WEIGHT = new int[Piece.COUNT];
+    private static final int MATERIAL_KEYS = 59049;
+
+    static {
+        int triangle = 0, half = 0;
+        Arrays.fill(KING_INDEX[0], -1);
+        Arrays.fill(KING_INDEX[1], -1);
+        for (int sq = 0; sq < 64; sq++) {
+            int file = sq & 7, rank = 7 - (sq >> 3);
+            if (file <= 3 && rank <= file) {
+                KING_INDEX[0][sq] = triangle;
+                TRIANGLE_SQUARES[triangle++] = sq;
+            }
+            if (file <= 3) {
+                KING_INDEX[1][sq] = half;
+                LEFT_HALF_SQUARES[half++] = sq;
+            }
+        }
+        int weight = 1;
+        for (int code = Piece.WHITE_PAWN; code < Piece.COUNT; code++) {
+            if (Piece.type(code) == Piece.KING) continue;
+            MATERIAL_WEIGHT[code] = weight;
+            weight *= 3;
+        }
+    }
+
+    // One material combination. Pieces sit in fixed slots: white king, black king, then the
+    // other white pieces and the other black pieces, strongest first.
+    static final class Table {
+        final int[] codes;
+        final String name; // e.g. "KRKN"
+        final boolean pawns;
+        final int positions;
+
+        MappedByteBuffer data; // null while the generator is still building the table
+        int dtmBits;
+        int dtmOffset;
+
+        Table(int[] codes) {
+            this.codes = codes;
+            boolean hasPawns = false;
+            StringBuilder white = new StringBuilder("K"), black = new StringBuilder("K");
+            for (int i = 2; i < codes.length; i++) {
+                hasPawns |= Piece.type(codes[i]) == Piece.PAWN;
+                (Piece.color(codes[i]) == Piece.WHITE ? white : black).append("PNBRQK".charAt(Piece.type(codes[i])));
+            }
+            name = white.append(black).toString();
+            pawns = hasPawns;
+            positions = (pawns ? LEFT_HALF_SQUARES.length : TRIANGLE_SQUARES.length) << (6 * (codes.length - 1) + 1);
+        }
+
+        int material() {
+            int key = 0;
+            for (int code : codes) key += MATERIAL_WEIGHT[code];
+            return key;
+        }
+
+        int flippedMaterial() {
+            int key = 0;
+            for (int code : codes) key += MATERIAL_WEIGHT[flipColor(code)];
+            return key;
+        }
+
+        // Index of the position with the pieces on squares[slot] (overwritten) and stm to move
+        int index(int[] squares, int stm) {
+            canonicalize(squares, codes.length, pawns);
+            int index = KING_INDEX[pawns ? 1 : 0][squares[0]];
+            for (int i = 1; i < codes.length; i++) {
+                index = (index << 6) | squares[i];
+            }
+            return (index << 1) | stm;
+        }
+
+        // Inverse of index: fills squares and returns the side to move
+        int decode(int index, int[] squares) {
+            int stm = index & 1;
+            index >>>= 1;
+            for (int i = codes.length - 1; i > 0; i--) {
+                squares[i] = index & 63;
+                index >>>= 6;
+            }
+            squares[0] = pawns ? LEFT_HALF_SQUARES[index] : TRIANGLE_SQUARES[index];
+            return stm;
+        }
+
+        int read(int index) {
+            int wdl = (data.get(HEADER_BYTES + (index >>> 2)) >>> ((index & 3) * 2)) & 3;
+            if (wdl == WDL_DRAW) return DRAW;
+            long bit = (long) index * dtmBits;
+            int at = dtmOffset + (int) (bit >>> 3);
+            int bits = (data.get(at) & 0xFF) | (data.get(at + 1) & 0xFF) << 8;
+            return (bits >>> (int) (bit & 7)) & ((1 << dtmBits) - 1);
+        }
+    }
+
+    // Moves every square by the symmetry that puts the white king (squares[0]) into its region.
+    // On the diagonal the first piece off it decides, so equal positions get one index.
+    static void canonicalize(int[] squares, int count, boolean pawns) {
+        int flip = (squares[0] & 7) > 3 ? 7 : 0;
+        if (!pawns && (squares[0] >> 3) < 4) flip |= 56;
+        boolean transpose = false;
+        if (!pawns) {
+            for (int i = 0; i < count; i++) {
+                int sq = squares[i] ^ flip;
+                int file = sq & 7, rank = 7 - (sq >> 3);
+                if (rank != file) {
+                    transpose = rank > file;
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int sq = squares[i] ^ flip;
+            squares[i] = transpose ? (7 - (sq & 7)) * 8 + 7 - (sq >> 3) : sq;
+        }
+    }
+
+    static int flipColor(int code) {
+        return code == Piece.EMPTY ? code : Piece.make(1 - Piece.color(code), Piece.type(code));
+    }
+
+    // Tables by material; a table also answers for its colour-flipped material
+    private final Table[] byMaterial = new Table[MATERIAL_KEYS];
+    private final boolean[] flipped = new boolean[MATERIAL_KEYS];
+    private int tableCount;
+
+    Tablebase() {
+    }
+
+    // Maps every table file in dir
+    public Tablebase(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path file : files) {
+                add(file);
+            }
+        }
+    }
+
+    // The tables in -Dchess.tablebases, or in ./tablebases; null if there are none
+    public static Tablebase openDefault() {
+        Path dir = Paths.get(System.getProperty("chess.tablebases", DEFAULT_DIR));
+        if (!Files.isDirectory(dir)) return null;
+        try {
+            Tablebase tablebase = new Tablebase(dir);
+            return tablebase.tableCount == 0 ? null : tablebase;
+        } catch (IOException e) {
+            System.err.println("Tablebases not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    void add(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) throw new IOException(file + " is not a tablebase");
+        int count = data.get(4);
+        if (count < 3 || count > MAX_PIECES) throw new IOException(file + ": bad piece count " + count);
+        int[] codes = new int[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = data.get(5 + i);
+        }
+        Table table = new Table(codes);
+        table.data = data;
+        table.dtmBits = data.get(9);
+        table.dtmOffset = HEADER_BYTES + (table.positions + 3) / 4;
+        long expected = table.dtmOffset + ((long) table.positions * table.dtmBits + 7) / 8 + 1;
+        if (data.limit() != expected) throw new IOException(file + ": size " + data.limit() + ", expected " + expected);
+        register(table);
+    }
+
+    void register(Table table) {
+        int key = table.material(), flippedKey = table.flippedMaterial();
+        byMaterial[key] = table;
+        flipped[key] = false;
+        if (flippedKey != key) {
+            byMaterial[flippedKey] = table;
+            flipped[flippedKey] = true;
+        }
+        tableCount++;
+    }
+
+    // Result for the side to move in board: UNKNOWN, DRAW, or the distance to mate
+    public int probe(Board board) {
+        return probe(board, new int[MAX_PIECES], new int[MAX_PIECES], new int[MAX_PIECES]);
+    }
+
+    // The same without allocating: codes, squares and slots are scratch arrays of MAX_PIECES
+    // entries owned by the caller, so the search can probe at every node
+    public int probe(Board board, int[] codes, int[] squares, int[] slots) {
+        int count = Long.bitCount(board.occupied);
+        if (count > MAX_PIECES || board.pieces[Piece.WHITE_KING] == 0 || board.pieces[Piece.BLACK_KING] == 0) return UNKNOWN;
+        long occupied = board.occupied;
+        for (int i = 0; i < count; i++) {
+            squares[i] = Long.numberOfTrailingZeros(occupied);
+            codes[i] = board.squares[squares[i]];
+            occupied &= occupied - 1;
+        }
+        return probe(codes, squares, slots, count, board.isWhiteTurn);
+    }
+
+    // Result for the side to move with piece codes[i] on squares[i], i < count (both kings
+    // included); slots is scratch space of at least count entries
+    int probe(int[] codes, int[] squares, int[] slots, int count, boolean whiteToMove) {
+        if (count == 2) return DRAW; // bare kings
+        int key = 0;
+        for (int i = 0; i < count; i++) {
+            key += MATERIAL_WEIGHT[codes[i]];
+        }
+        Table table = key < MATERIAL_KEYS ? byMaterial[key] : null;
+        if (table == null || table.data == null || table.codes.length != count) return UNKNOWN;
+
+        // slot order of the table, mirrored top to bottom when the colours are swapped
+        boolean flip = flipped[key];
+        int used = 0;
+        for (int slot = 0; slot < count; slot++) {
+            int wanted = flip ? flipColor(table.codes[slot]) : table.codes[slot];
+            int i = 0;
+            while (i < count && ((used >>> i & 1) != 0 || codes[i] != wanted)) i++;
+            if (i == count) return UNKNOWN; // two kings of one colour
+            used |= 1 << i;
+            slots[slot] = flip ? squares[i] ^ 56 : squares[i];
+        }
+        return table.read(table.index(slots, whiteToMove != flip ? Piece.WHITE : Piece.BLACK));
+    }
+
+    // Search score (white minus black) of a probe result for the side to move, ply from the root
+    public static int score(int result, int ply, boolean whiteToMove) {
+        if (result <= DRAW) return 0;
+        int score = (result & 1) == 1 ? WIN_SCORE - ply - result : -(WIN_SCORE - ply - result);
+        return whiteToMove ? score : -score;
+    }
+
+    // Won scores count plies from the root, so the transposition table keeps them counted from
+    // the node that stores them and converts back where they are read. A king-capture evaluation
+    // that happens to fall in the same range is shifted too; it comes back unchanged at the same
+    // ply and stays decisive at any other.
+    public static int toTableScore(int score, int ply) {
+        return score >= MIN_WIN_SCORE ? score + ply : score <= -MIN_WIN_SCORE ? score - ply : score;
+    }
+
+    public static int fromTableScore(int score, int ply) {
+        return score >= MIN_WIN_SCORE ? score - ply : score <= -MIN_WIN_SCORE ? score + ply : score;
+    }
+
+    // Best move in a tablebase position: the fastest win, else a draw, else the slowest loss.
+    // Move.NONE when the position is not covered.
+    public int bestMove(Board board) {
+        if (probe(board) == UNKNOWN) return Move.NONE;
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(board, board.isWhiteTurn ? Piece.WHITE : Piece.BLACK, MoveGenerator.ALL_MOVES, moves, 0);
+
+        int best = Move.NONE, bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i], captured = Move.captured(move);
+            if (captured != Piece.EMPTY && Piece.type(captured) == Piece.KING) return move;
+            board.make(move);
+            int result = probe(board); // for the opponent, who moves next
+            board.unmake(move);
+            int rank = result == UNKNOWN ? Integer.MIN_VALUE + 1
+                    : result == DRAW ? 0
+                    : (result & 1) == 0 ? 1000 - result // opponent loses
+                    : -1000 + result;
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = move;
+            }
+        }
+        return best;
+    }
+}
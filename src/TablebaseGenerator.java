@@ -0,0 +1,408 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Builds the Tablebase files by retrograde analysis, one material combination at a time, each
+// after the tables its captures and promotions lead into. Tables already in the directory are
+// kept, so an interrupted run picks up where it stopped.
+//
+//   java TablebaseGenerator [dir] [threads]
+//
+// Within a table, positions are settled one ply of distance at a time. At an odd ply every
+// position that can move into a position lost at the previous ply is won; the predecessors come
+// from un-moving the pieces of the side that just moved. At an even ply a position is lost once
+// all of its moves reach positions already won. Moves that capture or promote leave the table
+// and take their value from the finished smaller tables. Each ply is split over the threads by
+// index range; a position is only ever written with the current ply's value, so the threads
+// need no locking.
+public class TablebaseGenerator {
+
+    private static final int[] TYPES_STRONGEST_FIRST = { Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT, Piece.PAWN };
+    private static final int CHUNKS_PER_THREAD = 16;
+    private static final byte CANNOT_LOSE = (byte) 255; // lossAt value: a move out of the table holds the draw or wins
+
+    private final Path dir;
+    private final ExecutorService pool;
+    private final int threads;
+    private final Tablebase finished = new Tablebase(); // tables captures and promotions lead into
+
+    // the table being generated: distance to mate per position (0 = not settled, a draw in the
+    // end) and the earliest ply its moves out of the table allow it to be lost at
+    private Tablebase.Table table;
+    private byte[] dtm;
+    private byte[] lossAt;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get(args.length > 0 ? args[0] : Tablebase.DEFAULT_DIR);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        TablebaseGenerator generator = new TablebaseGenerator(dir, threads);
+        try {
+            generator.generateAll();
+        } finally {
+            generator.pool.shutdown();
+        }
+    }
+
+    public TablebaseGenerator(Path dir, int threads) {
+        this.dir = dir;
+        this.threads = Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(this.threads);
+    }
+
+    // Every material combination of up to MAX_PIECES pieces, as slot codes (see Tablebase.Table),
+    // ordered so that each comes after the ones its captures and promotions lead into. The side
+    // with the stronger pieces is white; the prober swaps colours for the other way round.
+    static List<int[]> materials() {
+        List<int[]> materials = new ArrayList<>();
+        for (int x : TYPES_STRONGEST_FIRST) {
+            materials.add(new int[] { Piece.WHITE_KING, Piece.BLACK_KING, Piece.make(Piece.WHITE, x) });
+        }
+        for (int i = 0; i < TYPES_STRONGEST_FIRST.length; i++) {
+            for (int j = i; j < TYPES_STRONGEST_FIRST.length; j++) {
+                int x = TYPES_STRONGEST_FIRST[i], y = TYPES_STRONGEST_FIRST[j];
+                materials.add(new int[] { Piece.WHITE_KING, Piece.BLACK_KING, Piece.make(Piece.WHITE, x), Piece.make(Piece.WHITE, y) });
+                materials.add(new int[] { Piece.WHITE_KING, Piece.BLACK_KING, Piece.make(Piece.WHITE, x), Piece.make(Piece.BLACK, y) });
+            }
+        }
+        materials.sort(Comparator.comparingInt((int[] codes) -> codes.length).thenComparingInt(TablebaseGenerator::pawns));
+        return materials;
+    }
+
+    private static int pawns(int[] codes) {
+        int pawns = 0;
+        for (int code : codes) {
+            if (Piece.type(code) == Piece.PAWN) pawns++;
+        }
+        return pawns;
+    }
+
+    public void generateAll() throws IOException, InterruptedException, ExecutionException {
+        Files.createDirectories(dir);
+        for (int[] codes : materials()) {
+            Tablebase.Table next = new Tablebase.Table(codes);
+            Path file = dir.resolve(next.name + Tablebase.EXTENSION);
+            if (!Files.exists(file)) {
+                long start = System.nanoTime();
+                generate(next);
+                write(file);
+                System.out.printf("%-5s %,11d positions %s %,6d ms%n", next.name, next.positions, summary(),
+                        (System.nanoTime() - start) / 1_000_000);
+                dtm = null;
+                lossAt = null;
+            }
+            finished.add(file);
+        }
+    }
+
+    private void generate(Tablebase.Table next) throws InterruptedException, ExecutionException {
+        table = next;
+        dtm = new byte[table.positions];
+        lossAt = new byte[table.positions];
+
+        int pending = (int) parallel((worker, from, to) -> worker.initialize(from, to));
+        boolean changedBefore = true;
+        for (int ply = 2; ; ply++) {
+            int n = ply;
+            boolean changed = parallel((worker, from, to) -> worker.settle(from, to, n)) != 0;
+            if (!changed && !changedBefore && ply > pending) break;
+            changedBefore = changed;
+        }
+    }
+
+    private interface Task {
+        long run(Worker worker, int from, int to);
+    }
+
+    // Runs task over the whole index range in chunks, several per thread so the threads finish
+    // together, and combines the results (a maximum or a flag)
+    private long parallel(Task task) throws InterruptedException, ExecutionException {
+        int chunks = threads * CHUNKS_PER_THREAD;
+        List<Callable<Long>> work = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) table.positions * c / chunks), to = (int) ((long) table.positions * (c + 1) / chunks);
+            work.add(() -> task.run(new Worker(), from, to));
+        }
+        long result = 0;
+        for (Future<Long> future : pool.invokeAll(work)) {
+            result = Math.max(result, future.get());
+        }
+        return result;
+    }
+
+    // Scratch space of one thread
+    private final class Worker {
+        final int count = table.codes.length;
+        final int[] squares = new int[count];
+        final int[] child = new int[count];
+        final int[] childCodes = new int[count];
+        final int[] childSlots = new int[count];
+        final int[] position = new int[count]; // for settleLoss, which runs while squares is in use
+
+        // First pass over every position: wins by taking the king, moves leaving the table, and
+        // the positions whose moves all leave it. Returns the last ply any of them waits for.
+        long initialize(int from, int to) {
+            int pending = 0;
+            for (int index = from; index < to; index++) {
+                int stm = table.decode(index, squares);
+                if (!valid()) {
+                    lossAt[index] = CANNOT_LOSE;
+                    continue;
+                }
+                int inside = 0, win = Integer.MAX_VALUE, loss = 0;
+                boolean holds = false;
+                long occupied = occupied(), own = pieces(stm), enemy = occupied & ~own;
+
+                search:
+                for (int slot = 0; slot < count; slot++) {
+                    int code = table.codes[slot];
+                    if (Piece.color(code) != stm) continue;
+                    long targets = targets(code, squares[slot], occupied, enemy) & ~own;
+                    while (targets != 0) {
+                        int target = Long.numberOfTrailingZeros(targets);
+                        targets &= targets - 1;
+                        int captured = slotOn(target);
+                        if (captured >= 0 && Piece.type(table.codes[captured]) == Piece.KING) {
+                            win = 1;
+                            break search;
+                        }
+                        boolean promotes = Piece.type(code) == Piece.PAWN && (target >> 3) == (stm == Piece.WHITE ? 0 : 7);
+                        if (captured < 0 && !promotes) {
+                            inside++;
+                            continue;
+                        }
+                        int result = probeOutside(slot, target, captured, promotes, stm);
+                        if (result == Tablebase.DRAW) holds = true;
+                        else if ((result & 1) == 0) win = Math.min(win, result + 1);
+                        else loss = Math.max(loss, result + 1);
+                    }
+                }
+
+                if (win != Integer.MAX_VALUE) {
+                    dtm[index] = distance(win);
+                    lossAt[index] = CANNOT_LOSE;
+                    pending = Math.max(pending, win);
+                } else if (holds || (inside == 0 && loss == 0)) {
+                    lossAt[index] = CANNOT_LOSE; // no moves at all counts as a draw
+                } else if (inside == 0) {
+                    dtm[index] = distance(loss);
+                    lossAt[index] = CANNOT_LOSE;
+                    pending = Math.max(pending, loss);
+                } else {
+                    lossAt[index] = distance(loss);
+                    pending = Math.max(pending, loss);
+                }
+            }
+            return pending;
+        }
+
+        // One ply: at odd plies the predecessors of positions lost at ply - 1 are won, at even
+        // plies positions reached from ones won at ply - 1 (or waiting for this ply) are checked
+        // for a loss. Returns 1 if anything was settled.
+        long settle(int from, int to, int ply) {
+            boolean changed = false;
+            boolean winPly = (ply & 1) == 1;
+            for (int index = from; index < to; index++) {
+                int value = dtm[index] & 0xFF;
+                if (!winPly && value == 0 && (lossAt[index] & 0xFF) == ply) {
+                    changed |= settleLoss(index, ply);
+                }
+                if (value != ply - 1 || value == 0) continue;
+
+                int stm = table.decode(index, squares);
+                int mover = 1 - stm;
+                long occupied = occupied();
+                for (int slot = 0; slot < count; slot++) {
+                    int code = table.codes[slot];
+                    if (Piece.color(code) != mover) continue;
+                    long sources = sources(code, squares[slot], occupied);
+                    while (sources != 0) {
+                        int source = Long.numberOfTrailingZeros(sources);
+                        sources &= sources - 1;
+                        System.arraycopy(squares, 0, child, 0, count);
+                        child[slot] = source;
+                        int before = table.index(child, mover);
+                        int known = dtm[before] & 0xFF;
+                        if (winPly) {
+                            if (known == 0 || ((known & 1) == 1 && known > ply)) {
+                                dtm[before] = distance(ply);
+                                changed = true;
+                            }
+                        } else if (known == 0) {
+                            changed |= settleLoss(before, ply);
+                        }
+                    }
+                }
+            }
+            return changed ? 1 : 0;
+        }
+
+        // Loses at ply if its moves out of the table allow it and every move inside the table
+        // reaches a position won at an earlier ply
+        private boolean settleLoss(int index, int ply) {
+            int floor = lossAt[index] & 0xFF;
+            if (floor == (CANNOT_LOSE & 0xFF) || floor > ply) return false;
+            int stm = table.decode(index, position);
+            long occupied = 0;
+            for (int sq : position) occupied |= 1L << sq;
+            long own = 0;
+            for (int slot = 0; slot < count; slot++) {
+                if (Piece.color(table.codes[slot]) == stm) own |= 1L << position[slot];
+            }
+            for (int slot = 0; slot < count; slot++) {
+                int code = table.codes[slot];
+                if (Piece.color(code) != stm) continue;
+                long targets = targets(code, position[slot], occupied, occupied & ~own) & ~occupied;
+                while (targets != 0) {
+                    int target = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    if (Piece.type(code) == Piece.PAWN && (target >> 3) == (stm == Piece.WHITE ? 0 : 7)) continue; // promotion, out of the table
+                    System.arraycopy(position, 0, child, 0, count);
+                    child[slot] = target;
+                    int known = dtm[table.index(child, 1 - stm)] & 0xFF;
+                    if ((known & 1) == 0 || known >= ply) return false;
+                }
+            }
+            dtm[index] = distance(ply);
+            return true;
+        }
+
+        // Value for the opponent after a capture or promotion, from the finished tables
+        private int probeOutside(int slot, int target, int captured, boolean promotes, int stm) {
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == captured) continue;
+                childCodes[n] = i == slot && promotes ? Piece.make(stm, Piece.QUEEN) : table.codes[i];
+                child[n++] = i == slot ? target : squares[i];
+            }
+            int result = finished.probe(childCodes, child, childSlots, n, stm != Piece.WHITE);
+            if (result == Tablebase.UNKNOWN) throw new IllegalStateException("no table for a move out of " + table.name);
+            return result;
+        }
+
+        // Pieces on distinct squares, and no pawn on the first or last row
+        private boolean valid() {
+            long seen = 0;
+            for (int slot = 0; slot < count; slot++) {
+                long bit = 1L << squares[slot];
+                if ((seen & bit) != 0) return false;
+                seen |= bit;
+                int row = squares[slot] >> 3;
+                if (Piece.type(table.codes[slot]) == Piece.PAWN && (row == 0 || row == 7)) return false;
+            }
+            return true;
+        }
+
+        private long occupied() {
+            long occupied = 0;
+            for (int slot = 0; slot < count; slot++) occupied |= 1L << squares[slot];
+            return occupied;
+        }
+
+        private long pieces(int color) {
+            long pieces = 0;
+            for (int slot = 0; slot < count; slot++) {
+                if (Piece.color(table.codes[slot]) == color) pieces |= 1L << squares[slot];
+            }
+            return pieces;
+        }
+
+        private int slotOn(int sq) {
+            for (int slot = 0; slot < count; slot++) {
+                if (squares[slot] == sq) return slot;
+            }
+            return -1;
+        }
+    }
+
+    // Squares a piece can move to, as in MoveGenerator (own pieces not yet removed)
+    static long targets(int code, int sq, long occupied, long enemy) {
+        int type = Piece.type(code);
+        if (type != Piece.PAWN) return Attacks.attacks(type, sq, occupied);
+        int color = Piece.color(code), row = sq >> 3;
+        long targets = Attacks.pawnAttacks(color, sq) & enemy;
+        int step = color == Piece.WHITE ? -8 : 8;
+        int start = color == Piece.WHITE ? 6 : 1;
+        if ((occupied & (1L << (sq + step))) == 0) {
+            targets |= 1L << (sq + step);
+            if (row == start && (occupied & (1L << (sq + 2 * step))) == 0) targets |= 1L << (sq + 2 * step);
+        }
+        return targets;
+    }
+
+    // Squares a piece can have come from with a move that did not capture or promote
+    static long sources(int code, int sq, long occupied) {
+        int type = Piece.type(code);
+        if (type != Piece.PAWN) return Attacks.attacks(type, sq, occupied) & ~occupied;
+        int color = Piece.color(code), row = sq >> 3;
+        int back = color == Piece.WHITE ? 8 : -8;
+        int start = color == Piece.WHITE ? 6 : 1;
+        long sources = 0;
+        int one = sq + back;
+        if ((one >> 3) != (color == Piece.WHITE ? 7 : 0) && (occupied & (1L << one)) == 0) {
+            sources |= 1L << one;
+            int two = one + back;
+            if ((two >> 3) == start && (occupied & (1L << two)) == 0) sources |= 1L << two;
+        }
+        return sources;
+    }
+
+    private static byte distance(int plies) {
+        if (plies > 255) throw new IllegalStateException("distance to mate over 255 plies");
+        return (byte) plies;
+    }
+
+    private String summary() {
+        long wins = 0, losses = 0;
+        int longest = 0;
+        for (byte b : dtm) {
+            int d = b & 0xFF;
+            if (d == 0) continue;
+            if ((d & 1) == 1) wins++;
+            else losses++;
+            longest = Math.max(longest, d);
+        }
+        return String.format("%,11d won %,11d lost, longest %3d plies", wins, losses, longest);
+    }
+
+    // Header, 2-bit win/draw/loss values, then the distances in as few bits as the longest needs
+    private void write(Path file) throws IOException {
+        int longest = 1;
+        for (byte b : dtm) longest = Math.max(longest, b & 0xFF);
+        int bits = 32 - Integer.numberOfLeadingZeros(longest);
+
+        int wdlBytes = (table.positions + 3) / 4;
+        byte[] out = new byte[Tablebase.HEADER_BYTES + wdlBytes + (int) (((long) table.positions * bits + 7) / 8) + 1];
+        out[0] = (byte) (Tablebase.MAGIC >>> 24);
+        out[1] = (byte) (Tablebase.MAGIC >>> 16);
+        out[2] = (byte) (Tablebase.MAGIC >>> 8);
+        out[3] = (byte) Tablebase.MAGIC;
+        out[4] = (byte) table.codes.length;
+        for (int i = 0; i < table.codes.length; i++) {
+            out[5 + i] = (byte) table.codes[i];
+        }
+        out[9] = (byte) bits;
+
+        int dtmOffset = Tablebase.HEADER_BYTES + wdlBytes;
+        for (int index = 0; index < table.positions; index++) {
+            int d = dtm[index] & 0xFF;
+            if (d == 0) continue;
+            int wdl = (d & 1) == 1 ? Tablebase.WDL_WIN : Tablebase.WDL_LOSS;
+            out[Tablebase.HEADER_BYTES + (index >>> 2)] |= (byte) (wdl << ((index & 3) * 2));
+            long bit = (long) index * bits;
+            int at = dtmOffset + (int) (bit >>> 3);
+            int shifted = d << (int) (bit & 7);
+            out[at] |= (byte) shifted;
+            out[at + 1] |= (byte) (shifted >>> 8);
+        }
+        Files.write(file, out);
+    }
+}
@@ -0,0 +1,391 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Headless self-play: engine variant A against variant B over an opening suite, each opening
+// played twice with the colours swapped. Every game runs on its own virtual thread; a semaphore
+// with one permit per core lets only that many searches run at once, so games waiting for their
+// turn cost nothing. Finished games are appended to a PGN file as they end. After each game the
+// Elo difference of A over B is printed with its 95% error bar, together with the SPRT
+// log-likelihood ratio, and the run stops early once the SPRT accepts either hypothesis.
+//
+//   java Tournament [-games N] [-movetime MS | -depth N | -nodes N] [-a SPEC] [-b SPEC]
+//                   [-cores N] [-concurrency N] [-sprt ELO0,ELO1] [-alpha A] [-beta B]
+//                   [-openings FILE] [-plies N] [-pgn FILE]
+//
+// A variant SPEC is a comma-separated list of nmp=on|off, lmr=on|off, hash=MB and tb=on|off,
+// e.g. -b nmp=off; the two variants are equal by default. Openings are lines of coordinate moves
+// as for BookBuilder (its built-in lines by default), cut to -plies plies. Search threads are
+// capped at Runtime.availableProcessors(), which counts logical cores; -cores sets the number of
+// physical ones.
+public class Tournament {
+
+    // a game is drawn after this many plies, and by the fifty-move rule, repetition or material
+    static final int MAX_PLIES = 400;
+    static final int FIFTY_MOVE_PLIES = 100;
+
+    private int games = 200;
+    private long movetime = 100;
+    private int depth = ChessBot.MAX_DEPTH;
+    private long nodes = Long.MAX_VALUE;
+    private Variant a = new Variant("");
+    private Variant b = new Variant("");
+    private int cores = Runtime.getRuntime().availableProcessors();
+    private int concurrency = -1; // games in flight, default twice the cores
+    private double elo0 = 0, elo1 = 5, alpha = 0.05, beta = 0.05;
+    private List<String> openingLines = List.of(BookBuilder.LINES);
+    private int openingPlies = 8;
+    private String pgnFile = "tournament.pgn";
+
+    private Semaphore searchPermits;
+    private Tablebase tablebase;
+    private PrintWriter pgn;
+
+    // results from A's point of view, guarded by this
+    private int wins, draws, losses;
+    private volatile boolean finished; // SPRT decided, start no more games
+    private long startNanos;
+
+    public static void main(String[] args) throws Exception {
+        Tournament tournament = new Tournament();
+        tournament.parse(args);
+        tournament.run();
+    }
+
+    private void parse(String[] args) throws IOException {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-games": games = Integer.parseInt(value); break;
+                case "-movetime": movetime = Long.parseLong(value); break;
+                case "-depth": depth = Integer.parseInt(value); movetime = Long.MAX_VALUE; break;
+                case "-nodes": nodes = Long.parseLong(value); movetime = Long.MAX_VALUE; break;
+                case "-a": a = new Variant(value); break;
+                case "-b": b = new Variant(value); break;
+                case "-cores": cores = Integer.parseInt(value); break;
+                case "-concurrency": concurrency = Integer.parseInt(value); break;
+                case "-sprt":
+                    String[] bounds = value.split(",");
+                    elo0 = Double.parseDouble(bounds[0]);
+                    elo1 = Double.parseDouble(bounds[1]);
+                    break;
+                case "-alpha": alpha = Double.parseDouble(value); break;
+                case "-beta": beta = Double.parseDouble(value); break;
+                case "-openings": openingLines = Files.readAllLines(Paths.get(value)); break;
+                case "-plies": openingPlies = Integer.parseInt(value); break;
+                case "-pgn": pgnFile = value; break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (concurrency <= 0) concurrency = 2 * cores;
+    }
+
+    // Engine settings of one side
+    static final class Variant {
+        final String spec;
+        boolean nullMove = true;
+        boolean lateMoveReductions = true;
+        int hashMb = ChessBot.DEFAULT_HASH_MB;
+        boolean tablebases = true;
+
+        Variant(String spec) {
+            this.spec = spec;
+            for (String setting : spec.split(",")) {
+                if (setting.isEmpty()) continue;
+                String[] kv = setting.split("=", 2);
+                boolean on = kv.length > 1 && kv[1].equals("on");
+                switch (kv[0]) {
+                    case "nmp": nullMove = on; break;
+                    case "lmr": lateMoveReductions = on; break;
+                    case "hash": hashMb = Integer.parseInt(kv[1]); break;
+                    case "tb": tablebases = on; break;
+                    default: throw new IllegalArgumentException("unknown variant setting " + setting);
+                }
+            }
+        }
+
+        ChessBot create(Tablebase tablebase) {
+            ChessBot bot = new ChessBot();
+            bot.setHashSize(hashMb);
+            bot.setNullMovePruning(nullMove);
+            bot.setLateMoveReductions(lateMoveReductions);
+            bot.setTablebase(tablebases ? tablebase : null);
+            return bot;
+        }
+
+        String name(String side) {
+            return spec.isEmpty() ? side : side + " (" + spec + ")";
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        List<int[]> openings = openings();
+        searchPermits = new Semaphore(cores);
+        tablebase = Tablebase.openDefault();
+        Semaphore gameSlots = new Semaphore(concurrency);
+        System.out.printf("%d games, %d openings, %s per move, %d cores, %d games in flight, SPRT [%.1f, %.1f]%n",
+                games, openings.size(), limitText(), cores, concurrency, elo0, elo1);
+
+        startNanos = System.nanoTime();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(pgnFile)));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            pgn = out;
+            for (int game = 0; game < games && !finished; game++) {
+                gameSlots.acquire();
+                if (finished) break;
+                int round = game;
+                executor.submit(() -> {
+                    try {
+                        play(round, openings.get((round / 2) % openings.size()), round % 2 == 0);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    } finally {
+                        gameSlots.release();
+                    }
+                });
+            }
+        } // waits for the games in flight
+        System.out.println("final: " + summary());
+    }
+
+    private String limitText() {
+        if (nodes != Long.MAX_VALUE) return nodes + " nodes";
+        if (depth != ChessBot.MAX_DEPTH) return "depth " + depth;
+        return movetime + " ms";
+    }
+
+    // The opening lines as packed moves, cut to openingPlies
+    private List<int[]> openings() {
+        List<int[]> openings = new ArrayList<>();
+        for (String line : openingLines) {
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) continue;
+            String[] words = text.split("\\s+");
+            int[] moves = new int[Math.min(words.length, openingPlies)];
+            Board board = Board.fromFen(Perft.START);
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = Uci.parseMove(board, words[i]);
+                if (moves[i] == Move.NONE) throw new IllegalArgumentException("illegal move " + words[i] + " in: " + text);
+                board.play(moves[i]);
+            }
+            openings.add(moves);
+        }
+        return openings;
+    }
+
+    // One game from the opening; aWhite says which variant has white
+    private void play(int round, int[] opening, boolean aWhite) throws InterruptedException {
+        ChessBot white = (aWhite ? a : b).create(tablebase);
+        ChessBot black = (aWhite ? b : a).create(tablebase);
+        Board board = Board.fromFen(Perft.START);
+        List<String> sans = new ArrayList<>();
+        Map<Long, Integer> seen = new HashMap<>();
+        int quietPlies = 0;
+        String result = null, reason = null;
+
+        try {
+            for (int move : opening) {
+                sans.add(san(board, move));
+                board.play(move);
+            }
+            while (result == null) {
+                seen.merge(board.zobristKey, 1, Integer::sum);
+                if (seen.get(board.zobristKey) >= 3) {
+                    result = "1/2-1/2";
+                    reason = "threefold repetition";
+                } else if (quietPlies >= FIFTY_MOVE_PLIES) {
+                    result = "1/2-1/2";
+                    reason = "fifty-move rule";
+                } else if (sans.size() >= MAX_PLIES) {
+                    result = "1/2-1/2";
+                    reason = "move limit";
+                } else if (insufficientMaterial(board)) {
+                    result = "1/2-1/2";
+                    reason = "insufficient material";
+                } else if (tablebase != null && tablebase.probe(board) != Tablebase.UNKNOWN) {
+                    int value = tablebase.probe(board);
+                    boolean whiteWins = (value & 1) == 1 == board.isWhiteTurn;
+                    result = value == Tablebase.DRAW ? "1/2-1/2" : whiteWins ? "1-0" : "0-1";
+                    reason = "tablebase";
+                }
+                if (result != null) break;
+
+                ChessBot bot = board.isWhiteTurn ? white : black;
+                Move best;
+                searchPermits.acquire();
+                try {
+                    best = bot.getBestMoveTimed(new Board(board), movetime, depth, nodes);
+                } finally {
+                    searchPermits.release();
+                }
+                int move = best == null ? Move.NONE : Uci.parseMove(board, best.toString());
+                if (move == Move.NONE) {
+                    result = "1/2-1/2";
+                    reason = "no moves";
+                    break;
+                }
+
+                sans.add(san(board, move));
+                boolean pawnOrCapture = Piece.type(Move.piece(move)) == Piece.PAWN || Move.captured(move) != Piece.EMPTY;
+                quietPlies = pawnOrCapture ? 0 : quietPlies + 1;
+                board.play(move);
+                if (Move.captured(move) == Piece.WHITE_KING || Move.captured(move) == Piece.BLACK_KING) {
+                    result = Move.captured(move) == Piece.BLACK_KING ? "1-0" : "0-1";
+                    reason = "king captured";
+                }
+            }
+        } finally {
+            white.shutdown();
+            black.shutdown();
+        }
+
+        String aResult = aWhite ? result : result.equals("1-0") ? "0-1" : result.equals("0-1") ? "1-0" : result;
+        record(round, a.name("A"), b.name("B"), aWhite, sans, result, reason, aResult);
+    }
+
+    // Kings only, or kings and a single knight or bishop
+    static boolean insufficientMaterial(Board board) {
+        for (int type = Piece.PAWN; type <= Piece.QUEEN; type++) {
+            if (type == Piece.KNIGHT || type == Piece.BISHOP) continue;
+            if ((board.pieces[Piece.make(Piece.WHITE, type)] | board.pieces[Piece.make(Piece.BLACK, type)]) != 0) return false;
+        }
+        long minors = board.pieces[Piece.WHITE_KNIGHT] | board.pieces[Piece.WHITE_BISHOP]
+                | board.pieces[Piece.BLACK_KNIGHT] | board.pieces[Piece.BLACK_BISHOP];
+        return Long.bitCount(minors) <= 1;
+    }
+
+    // Standard algebraic notation of a move in board, before it is made
+    static String san(Board board, int move) {
+        int piece = Move.piece(move), type = Piece.type(piece), from = Move.from(move), to = Move.to(move);
+        boolean capture = Move.captured(move) != Piece.EMPTY;
+        String target = Move.of(move).toString().substring(2);
+        StringBuilder sb = new StringBuilder();
+        if (type == Piece.PAWN) {
+            if (capture) sb.append((char) ('a' + (from & 7))).append('x');
+            sb.append(target);
+            if (Move.promoted(move) != Piece.EMPTY) sb.append("=Q");
+        } else {
+            sb.append("PNBRQK".charAt(type));
+            // another piece of the same kind reaching the same square: name the file, else the rank
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = MoveGenerator.generate(board, Piece.color(piece), MoveGenerator.ALL_MOVES, moves, 0);
+            boolean ambiguous = false, sameFile = false, sameRank = false;
+            for (int i = 0; i < count; i++) {
+                int other = Move.from(moves[i]);
+                if (other == from || Move.to(moves[i]) != to || Move.piece(moves[i]) != piece) continue;
+                ambiguous = true;
+                sameFile |= (other & 7) == (from & 7);
+                sameRank |= (other >> 3) == (from >> 3);
+            }
+            if (ambiguous && (!sameFile || sameRank)) sb.append((char) ('a' + (from & 7)));
+            if (ambiguous && sameFile) sb.append((char) ('8' - (from >> 3)));
+            if (capture) sb.append('x');
+            sb.append(target);
+        }
+
+        boolean white = Piece.color(piece) == Piece.WHITE;
+        board.make(move);
+        boolean check = board.pieces[white ? Piece.BLACK_KING : Piece.WHITE_KING] != 0 && board.isKingInCheck(!white);
+        board.unmake(move);
+        return check ? sb.append('+').toString() : sb.toString();
+    }
+
+    // Appends the game to the PGN file and prints the running result
+    private synchronized void record(int round, String nameA, String nameB, boolean aWhite, List<String> sans,
+                                     String result, String reason, String aResult) {
+        switch (aResult) {
+            case "1-0": wins++; break;
+            case "0-1": losses++; break;
+            default: draws++;
+        }
+
+        pgn.printf("[Event \"Self-play\"]%n[Site \"?\"]%n[Date \"%s\"]%n[Round \"%d\"]%n",
+                LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")), round + 1);
+        pgn.printf("[White \"%s\"]%n[Black \"%s\"]%n[Result \"%s\"]%n", aWhite ? nameA : nameB, aWhite ? nameB : nameA, result);
+        pgn.printf("[Termination \"%s\"]%n[PlyCount \"%d\"]%n%n", reason.equals("king captured") ? "normal" : "adjudication", sans.size());
+        StringBuilder line = new StringBuilder();
+        for (int ply = 0; ply < sans.size(); ply++) {
+            String token = (ply % 2 == 0 ? (ply / 2 + 1) + ". " : "") + sans.get(ply);
+            if (line.length() + token.length() + 1 > 79) {
+                pgn.println(line);
+                line.setLength(0);
+            }
+            if (line.length() > 0) line.append(' ');
+            line.append(token);
+        }
+        String end = "{" + reason + "} " + result;
+        if (line.length() + end.length() + 1 > 79) {
+            pgn.println(line);
+            line.setLength(0);
+        }
+        pgn.println(line.length() > 0 ? line + " " + end : end);
+        pgn.println();
+        pgn.flush();
+
+        System.out.println(summary());
+        double llr = llr();
+        if (!finished && (llr >= Math.log((1 - beta) / alpha) || llr <= Math.log(beta / (1 - alpha)))) {
+            finished = true;
+            System.out.println("SPRT: " + (llr > 0 ? "H1" : "H0") + " accepted");
+        }
+    }
+
+    private synchronized String summary() {
+        int n = wins + draws + losses;
+        double hours = (System.nanoTime() - startNanos) / 3.6e12;
+        double[] elo = eloWithError();
+        return String.format("games %d: +%d =%d -%d, Elo %.1f +/- %.1f, LLR %.2f [%.2f, %.2f], %.0f games/h",
+                n, wins, draws, losses, elo[0], elo[1], llr(), Math.log(beta / (1 - alpha)), Math.log((1 - beta) / alpha),
+                hours == 0 ? 0.0 : n / hours);
+    }
+
+    // Elo difference of A over B and the half-width of its 95% confidence interval
+    private double[] eloWithError() {
+        int n = wins + draws + losses;
+        if (n == 0) return new double[] { 0, 0 };
+        double score = (wins + draws / 2.0) / n;
+        double deviation = Math.sqrt(variance(score) / n);
+        double low = elo(score - 1.96 * deviation), high = elo(score + 1.96 * deviation);
+        return new double[] { elo(score), (high - low) / 2 };
+    }
+
+    // Per-game variance of the score around its mean
+    private double variance(double score) {
+        int n = wins + draws + losses;
+        return (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2)) / n;
+    }
+
+    // Log-likelihood ratio of H1 (Elo = elo1) against H0 (Elo = elo0), normal approximation to
+    // the trinomial game result
+    private double llr() {
+        int n = wins + draws + losses;
+        if (n == 0) return 0;
+        double score = (wins + draws / 2.0) / n;
+        double variance = variance(score);
+        if (variance == 0) return 0;
+        double s0 = expectedScore(elo0), s1 = expectedScore(elo1);
+        return (s1 - s0) * (2 * score - s0 - s1) * n / (2 * variance);
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    static double elo(double score) {
+        score = Math.max(1e-6, Math.min(1 - 1e-6, score));
+        return -400 * Math.log10(1 / score - 1);
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+// Fixed-size hash table of search results keyed by Zobrist key. Entries live in two parallel
+// long arrays (key, packed data), so the table holds no per-entry objects.
+// Buckets hold two entries: the first keeps the deepest result of the current search, the
+// second is always overwritten, so shallow results still get cached.
+// The table is shared by the Lazy SMP threads without locks: each slot stores key ^ data, so
+// an entry torn by two threads writing at once no longer matches its key and reads as a miss.
+public final class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2; // real score >= stored score (fail high)
+    public static final int UPPER = 3; // real score <= stored score (fail low)
+
+    private static final int ENTRY_BYTES = 16;
+
+    private long[] keys;
+    private long[] data;
+    private int bucketMask;
+    private int age;
+
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    // Rounded down to a power of two number of buckets, the contents are dropped
+    public void resize(int megabytes) {
+        long entries = Math.max(2L, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 30));
+        keys = new long[buckets * 2];
+        data = new long[buckets * 2];
+        bucketMask = buckets - 1;
+        age = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        age = 0;
+    }
+
+    public int sizeInMegabytes() {
+        return (int) ((long) keys.length * ENTRY_BYTES / (1024 * 1024));
+    }
+
+    // Called once per search so entries from older searches get replaced first
+    public void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+    // data layout: bits 0-23 move, 24-31 depth, 32-47 score, 48-49 bound, 50-55 age
+    private static long pack(int move, int depth, int score, int bound, int age) {
+        return (move & 0xFFFFFFL)
+                | ((long) (depth & 0xFF) << 24)
+                | ((long) (score & 0xFFFF) << 32)
+                | ((long) bound << 48)
+                | ((long) age << 50);
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFFFF);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 24) & 0xFF);
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> 32);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> 48) & 3);
+    }
+
+    private static int age(long entry) {
+        return (int) ((entry >>> 50) & 0x3F);
+    }
+
+    // Returns the packed entry for this key, or 0 when the position is not stored
+    public long probe(long key) {
+        int index = ((int) key & bucketMask) << 1;
+        long entry = data[index];
+        if (entry != 0 && (keys[index] ^ entry) == key) return entry;
+        entry = data[index + 1];
+        if (entry != 0 && (keys[index + 1] ^ entry) == key) return entry;
+        return 0L;
+    }
+
+    // Scores must fit in 16 bits, which holds for every Board.evaluate() result
+    public void store(long key, int depth, int score, int bound, int move) {
+        int index = ((int) key & bucketMask) << 1;
+        long entry = data[index];
+        boolean sameKey = (keys[index] ^ entry) == key;
+
+        if (!sameKey && entry != 0 && age(entry) == age && depth < depth(entry)) {
+            index++; // first slot holds a deeper result of this search
+            entry = data[index];
+            sameKey = (keys[index] ^ entry) == key;
+        }
+
+        // keep the old best move when a result for the same position has none
+        if (move == Move.NONE && sameKey) move = move(entry);
+        long packed = pack(move, depth, score, bound, age);
+        keys[index] = key ^ packed;
+        data[index] = packed;
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless engine speaking the UCI protocol on standard input and output, for chess GUIs,
+// tournament managers and scripted benchmarks. Only Board and ChessBot are used, so no AWT class
+// is loaded and the engine answers "uci" within milliseconds of starting.
+//
+//   java -cp engine/target/classes Uci
+//
+// Commands: uci, isready, ucinewgame, setoption (Hash, Threads), position startpos|fen <fen>
+// [moves ...], go [depth N] [movetime MS] [nodes N] [wtime/btime/winc/binc/movestogo] [infinite]
+// [ponder], ponderhit, stop, quit. Other go parameters (searchmoves, mate) are skipped with their
+// arguments. After go infinite or go ponder the bestmove waits for stop or ponderhit. The rules here have no castling or en passant and always promote to a queen, so a
+// castling move from the GUI is rejected with an info string.
+public class Uci {
+
+    static final String NAME = "Chess Singleplayer";
+    static final String AUTHOR = "Abin NR";
+
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 256;
+
+    // clock handling without movestogo: spend a thirtieth of the remaining time plus half the
+    // increment, and keep a margin for the GUI's overhead
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    private static final long CLOCK_MARGIN_MS = 50;
+
+    private static final Set<String> GO_LIMITS =
+            Set.of("depth", "movetime", "nodes", "wtime", "btime", "winc", "binc", "movestogo");
+    private static final Set<String> GO_FLAGS = Set.of("infinite", "ponder");
+
+    private final ChessBot bot = new ChessBot();
+    private final PrintStream out;
+    private Board board = Board.fromFen(Perft.START);
+    private Board searchRoot;
+    private Thread search; // running "go", null when idle
+    private volatile boolean holdBestMove; // go infinite or ponder, until stop or ponderhit
+
+    public static void main(String[] args) throws IOException {
+        new Uci(System.out).run(new BufferedReader(new InputStreamReader(System.in)));
+    }
+
+    public Uci(PrintStream out) {
+        this.out = out;
+        bot.setTablebase(Tablebase.openDefault());
+        bot.setIterationListener(this::printInfo);
+    }
+
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!command(line.trim())) break;
+        }
+        stopSearch();
+        bot.shutdown();
+    }
+
+    // Handles one command; false on quit
+    boolean command(String line) {
+        String[] words = line.split("\\s+");
+        switch (words[0]) {
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default " + ChessBot.DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "ucinewgame":
+                stopSearch();
+                bot.getTranspositionTable().clear();
+                board = Board.fromFen(Perft.START);
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(words);
+                break;
+            case "position":
+                stopSearch();
+                position(words);
+                break;
+            case "go":
+                stopSearch();
+                go(words);
+                break;
+            case "ponderhit":
+                holdBestMove = false;
+                if (search != null) LockSupport.unpark(search);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                return false;
+            default:
+                if (!line.isEmpty()) send("info string unknown command " + words[0]);
+        }
+        return true;
+    }
+
+    // setoption name <name> value <value>
+    private void setOption(String[] words) {
+        if (words.length < 5 || !words[1].equals("name") || !words[3].equals("value")) return;
+        try {
+            int value = Integer.parseInt(words[4]);
+            if (words[2].equalsIgnoreCase("Hash")) {
+                bot.setHashSize(Math.max(1, Math.min(MAX_HASH_MB, value)));
+            } else if (words[2].equalsIgnoreCase("Threads")) {
+                bot.setThreads(Math.max(1, Math.min(MAX_THREADS, value)));
+            } else {
+                send("info string unknown option " + words[2]);
+            }
+        } catch (NumberFormatException e) {
+            send("info string bad value " + words[4]);
+        }
+    }
+
+    // position startpos|fen <six fields> [moves <move> ...]
+    private void position(String[] words) {
+        int i = 1;
+        Board next;
+        if (words.length > 1 && words[1].equals("startpos")) {
+            next = Board.fromFen(Perft.START);
+            i = 2;
+        } else if (words.length > 1 && words[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (i = 2; i < words.length && !words[i].equals("moves"); i++) {
+                fen.append(words[i]).append(' ');
+            }
+            try {
+                next = Board.fromFen(fen.toString().trim());
+            } catch (RuntimeException e) {
+                send("info string bad fen " + fen.toString().trim());
+                return;
+            }
+        } else {
+            send("info string position needs startpos or fen");
+            return;
+        }
+
+        if (i < words.length && words[i].equals("moves")) {
+            for (i++; i < words.length; i++) {
+                int move = parseMove(next, words[i]);
+                if (move == Move.NONE) {
+                    send("info string illegal move " + words[i]);
+                    break;
+                }
+                next.play(move); // a whole game, longer than the search's undo stack
+            }
+        }
+        board = next;
+    }
+
+    // go [depth N] [movetime MS] [nodes N] [wtime MS] [btime MS] [winc MS] [binc MS] [movestogo N]
+    // [infinite] [ponder]; a parameter that cannot be used is reported and the search runs anyway
+    private void go(String[] words) {
+        int depth = ChessBot.MAX_DEPTH;
+        long budget = Long.MAX_VALUE, nodes = Long.MAX_VALUE;
+        long time = -1, increment = 0;
+        int movesToGo = DEFAULT_MOVES_TO_GO;
+        boolean white = board.isWhiteTurn;
+        boolean hold = false;
+        for (int i = 1; i < words.length; i++) {
+            String key = words[i];
+            if (GO_FLAGS.contains(key)) {
+                hold = true; // no limit, and no bestmove before stop
+                continue;
+            }
+            if (!GO_LIMITS.contains(key)) {
+                // searchmoves e2e4 d2d4, mate 3, ...: skipped up to the next known parameter
+                send("info string unsupported go parameter " + key);
+                while (i + 1 < words.length && !GO_LIMITS.contains(words[i + 1]) && !GO_FLAGS.contains(words[i + 1])) i++;
+                continue;
+            }
+            if (i + 1 == words.length) break; // no value
+            long value;
+            try {
+                value = Long.parseLong(words[++i]);
+            } catch (NumberFormatException e) {
+                send("info string bad go parameter " + key + " " + words[i]);
+                continue;
+            }
+            switch (key) {
+                case "depth": depth = (int) Math.max(1, Math.min(ChessBot.MAX_DEPTH, value)); break;
+                case "movetime": budget = Math.max(1, value); break;
+                case "nodes": nodes = value; break;
+                case "wtime": if (white) time = value; break;
+                case "btime": if (!white) time = value; break;
+                case "winc": if (white) increment = value; break;
+                case "binc": if (!white) increment = value; break;
+                case "movestogo": movesToGo = (int) Math.max(1, value); break;
+            }
+        }
+        if (time >= 0 && budget == Long.MAX_VALUE) {
+            budget = Math.max(1, Math.min(time / movesToGo + increment / 2, time - CLOCK_MARGIN_MS));
+        }
+
+        Board root = new Board(board);
+        long searchBudget = budget;
+        int searchDepth = depth;
+        long searchNodes = nodes;
+        searchRoot = root;
+        holdBestMove = hold;
+        search = new Thread(() -> {
+            Move best = bot.getBestMoveTimed(new Board(root), searchBudget, searchDepth, searchNodes);
+            if (bot.getCompletedDepth() == 0 && best != null) {
+                // answered by the tablebases (or stopped at once): no iteration was reported
+                printInfo(0, bot.getLastScore(), bot.getNodes(), 0, bot.getPrincipalVariation());
+            }
+            while (holdBestMove && !Thread.currentThread().isInterrupted()) {
+                LockSupport.park(this); // an infinite search can still end early, at MAX_DEPTH or a mate
+            }
+            send("bestmove " + (best != null ? uciMove(root, best) : fallbackMove(root)));
+        }, "uci-search");
+        search.start();
+    }
+
+    // Interrupts a running search, which then reports the best move of its last finished
+    // iteration, and waits for it
+    private void stopSearch() {
+        if (search == null) return;
+        search.interrupt();
+        try {
+            search.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        search = null;
+    }
+
+    // info depth <d> score cp <x> nodes <n> nps <n> time <ms> pv <moves>
+    private void printInfo(int depth, int score, long nodes, long elapsedNanos, List<Move> pv) {
+        Board root = searchRoot;
+        StringBuilder sb = new StringBuilder("info depth ").append(depth)
+                .append(" score cp ").append(root.isWhiteTurn ? score : -score); // for the side to move
+        long millis = elapsedNanos / 1_000_000;
+        sb.append(" nodes ").append(nodes)
+                .append(" nps ").append(elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos)
+                .append(" time ").append(millis);
+        if (!pv.isEmpty()) {
+            sb.append(" pv");
+            Board line = new Board(root);
+            for (Move move : pv) {
+                sb.append(' ').append(uciMove(line, move));
+                line = line.makeMove(move);
+            }
+        }
+        send(sb.toString());
+    }
+
+    // Packed move matching the UCI text in board, Move.NONE if there is none. Any promotion
+    // letter is accepted; the pawn becomes a queen.
+    static int parseMove(Board board, String text) {
+        if (text.length() < 4) return Move.NONE;
+        String squares = text.substring(0, 4);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(board, board.isWhiteTurn ? Piece.WHITE : Piece.BLACK, MoveGenerator.ALL_MOVES, moves, 0);
+        for (int i = 0; i < count; i++) {
+            if (Move.of(moves[i]).toString().equals(squares)) return moves[i];
+        }
+        return Move.NONE;
+    }
+
+    // Coordinate notation with the "q" UCI expects on a promotion
+    static String uciMove(Board board, Move move) {
+        int piece = board.squares[move.fromRow * 8 + move.fromCol];
+        boolean promotes = piece != Piece.EMPTY && Piece.type(piece) == Piece.PAWN && (move.toRow == 0 || move.toRow == 7);
+        return promotes ? move + "q" : move.toString();
+    }
+
+    // Move for a search stopped before depth 1 finished: the first one that does not leave the
+    // mover's king attacked, or the UCI null move when there is none
+    private static String fallbackMove(Board board) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        boolean white = board.isWhiteTurn;
+        int count = MoveGenerator.generate(board, white ? Piece.WHITE : Piece.BLACK, MoveGenerator.ALL_MOVES, moves, 0);
+        for (int i = 0; i < count; i++) {
+            board.make(moves[i]);
+            boolean legal = !board.isKingInCheck(white);
+            board.unmake(moves[i]);
+            if (legal) return uciMove(board, Move.of(moves[i]));
+        }
+        return count > 0 ? uciMove(board, Move.of(moves[0])) : "0000";
+    }
+
+    private void send(String message) {
+        synchronized (out) {
+            out.println(message);
+            out.flush();
+        }
+    }
+}
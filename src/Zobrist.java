@@ -0,0 +1,22 @@
+import java.util.SplittableRandom;
+
+// Random keys for Zobrist hashing. A position's key is the XOR of one key per (piece, square)
+// plus SIDE when black is to move, so Board can update it incrementally in make/unmake.
+public final class Zobrist {
+
+    public static final long[][] PIECE_SQUARE = new long[Piece.COUNT][64];
+    public static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x2F0B7A1C9D3E5F47L); // fixed, keys are stable across runs
+        for (int piece = Piece.WHITE_PAWN; piece < Piece.COUNT; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                PIECE_SQUARE[piece][sq] = random.nextLong();
+            }
+        }
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}